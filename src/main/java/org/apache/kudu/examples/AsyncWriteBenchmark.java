@@ -0,0 +1,181 @@
+package org.apache.kudu.examples;
+
+import com.stumbleupon.async.Deferred;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kudu.client.AsyncKuduClient;
+import org.apache.kudu.client.AsyncKuduSession;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.Operation;
+import org.apache.kudu.client.OperationResponse;
+import org.apache.kudu.client.PleaseThrottleException;
+import org.apache.kudu.client.SessionConfiguration;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.LatencyReport;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes rows through an {@link AsyncKuduSession} and times every operation
+ * from its apply until its Deferred completes. The session is flushed
+ * manually every batchOps operations so that the size and the duration of
+ * every flush are known, and the bytes of applied but unacknowledged
+ * operations are bounded by maxBufferedBytes. When the bound is reached
+ * the pending batch is flushed early, as only flushes give bytes back.
+ */
+public class AsyncWriteBenchmark {
+    public static final int DEFAULT_BATCH_OPS = 1000;
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 8 * 1024 * 1024;
+    // the estimate of the largest row: the longest key and its string value
+    public static final int MAX_OPERATION_BYTES = estimateBytes(Integer.MIN_VALUE + 1);
+
+    private final AsyncKuduClient client;
+    private final int batchOps;
+    private final int maxBufferedBytes;
+
+    private final Recorder writeLatency = LatencyReport.newRecorder();
+    private final Recorder flushLatency = LatencyReport.newRecorder();
+    private final Histogram flushOps = LatencyReport.newHistogram();
+    private final Histogram flushBytes = LatencyReport.newHistogram();
+    private final Histogram bufferedBytes = LatencyReport.newHistogram();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private Semaphore bytePermits;
+
+    public AsyncWriteBenchmark(AsyncKuduClient client, int batchOps, int maxBufferedBytes) {
+        if (batchOps < 1) {
+            throw new IllegalArgumentException("batchOps must be at least 1, got " + batchOps);
+        }
+        if (maxBufferedBytes < MAX_OPERATION_BYTES) {
+            throw new IllegalArgumentException("maxBufferedBytes must hold one operation of "
+                    + MAX_OPERATION_BYTES + " bytes, got " + maxBufferedBytes);
+        }
+        this.client = client;
+        this.batchOps = batchOps;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * A rough size of a row of the example table: the int key, the string
+     * value and some per-operation overhead.
+     */
+    static int estimateBytes(int key) {
+        return 4 + 8 + (key % 2 == 0 ? 0 : 6 + String.valueOf(key).length());
+    }
+
+    private void apply(AsyncKuduSession session, Operation op, int key, int bytes,
+                       KeyGenerators keyGenerators) throws Exception {
+        inFlightBytes.addAndGet(bytes);
+        bufferedBytes.recordValue(inFlightBytes.get());
+        final long start = System.nanoTime();
+        Deferred<OperationResponse> d;
+        while (true) {
+            try {
+                d = session.apply(op);
+                break;
+            } catch (PleaseThrottleException e) {
+                // all the buffers are flushing, wait for one of them
+                e.getDeferred().join();
+            }
+        }
+        d.addCallbacks(response -> {
+            writeLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            if (response.hasRowError()) {
+                errors.incrementAndGet();
+            } else {
+                keyGenerators.publish(key);
+            }
+            release(bytes);
+            return null;
+        }, (Exception e) -> {
+            errors.incrementAndGet();
+            release(bytes);
+            return null;
+        });
+    }
+
+    private void release(int bytes) {
+        inFlightBytes.addAndGet(-bytes);
+        bytePermits.release(bytes);
+    }
+
+    private Deferred<List<OperationResponse>> flush(AsyncKuduSession session, int ops, long bytes) {
+        flushOps.recordValue(ops);
+        flushBytes.recordValue(bytes);
+        final long start = System.nanoTime();
+        Deferred<List<OperationResponse>> d = session.flush();
+        d.addBoth(responses -> {
+            flushLatency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            return null;
+        });
+        return d;
+    }
+
+    public String run(String tableName, int numRows, KeyGenerators keyGenerators) throws Exception {
+        KuduTable table = client.openTable(tableName).join();
+        AsyncKuduSession session = client.newSession();
+        session.setFlushMode(SessionConfiguration.FlushMode.MANUAL_FLUSH);
+        session.setMutationBufferSpace(batchOps);
+        bytePermits = new Semaphore(maxBufferedBytes);
+        KeyGenerator keys = keyGenerators.forThread(0, 1);
+
+        long begin = System.nanoTime();
+        int batch = 0;
+        long batchBytes = 0;
+        for (int i = 0; i < numRows; i++) {
+            int key = KuduOperations.toIntKey(keys.nextKey());
+            int bytes = estimateBytes(key);
+            if (!bytePermits.tryAcquire(bytes)) {
+                // the bytes of the pending batch only come back once it is flushed
+                if (batch > 0) {
+                    flush(session, batch, batchBytes);
+                    batch = 0;
+                    batchBytes = 0;
+                }
+                bytePermits.acquire(bytes);
+            }
+            apply(session, KuduOperations.newWriteOperation(table, key, keyGenerators.isSequential()), key, bytes,
+                    keyGenerators);
+            batch++;
+            batchBytes += bytes;
+            if (batch >= batchOps) {
+                flush(session, batch, batchBytes);
+                batch = 0;
+                batchBytes = 0;
+            }
+        }
+        if (batch > 0) {
+            flush(session, batch, batchBytes);
+        }
+        session.close().join();
+        // every operation released its bytes once acknowledged
+        bytePermits.acquire(maxBufferedBytes);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Async wrote %d rows in %d ms (%.1f rows/s), %d errors",
+                numRows, elapsedMs, LatencyReport.qps(numRows, elapsedMs), errors.get()))
+                .append(System.lineSeparator());
+        sb.append(LatencyReport.summarize("write latency", writeLatency.getIntervalHistogram(), elapsedMs))
+                .append(System.lineSeparator());
+        sb.append(LatencyReport.summarize("flush latency", flushLatency.getIntervalHistogram(), elapsedMs))
+                .append(System.lineSeparator());
+        sb.append(String.format("flush size: %d flushes, ops p50=%d max=%d, bytes p50=%d max=%d",
+                flushOps.getTotalCount(),
+                flushOps.getValueAtPercentile(50), flushOps.getMaxValue(),
+                flushBytes.getValueAtPercentile(50), flushBytes.getMaxValue()))
+                .append(System.lineSeparator());
+        sb.append(String.format("buffered bytes: p50=%d p99=%d max=%d of %d",
+                bufferedBytes.getValueAtPercentile(50), bufferedBytes.getValueAtPercentile(99),
+                bufferedBytes.getMaxValue(), maxBufferedBytes))
+                .append(System.lineSeparator());
+        if (errors.get() != 0) {
+            throw new RuntimeException("error writing rows to Kudu" + System.lineSeparator() + sb);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,226 @@
+package org.apache.kudu.examples;
+
+import org.apache.kudu.client.AsyncKuduClient;
+import org.apache.kudu.client.KuduClient;
+import org.apache.log4j.BasicConfigurator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.kudu.examples.Utilities.convertExceptionMessage;
+
+/**
+ * The single entry point of all workloads. Every workload is a named mode
+ * in the registry, parsed from the same {@link ExampleArguments} and run
+ * against the same client, key generators and reports, so that comparing
+ * modes compares the workloads and not the harnesses. Without --mode the
+ * mode follows the options, as the former Example and ScanItemTable
+ * entry points did.
+ */
+public class Benchmark {
+    public static final String LOOKUP = "lookup";
+    public static final String EXAMPLE = "example";
+
+    public interface Mode {
+        void run(Context context) throws Exception;
+    }
+
+    /**
+     * What a mode runs with: the parsed and the raw arguments, and one
+     * client shared by all threads of the mode, built on first use and shut
+     * down after it. The synchronous client wraps the asynchronous one, so
+     * both share the connections.
+     */
+    public static class Context {
+        public final ExampleArguments args;
+        public final String[] rawArgs;
+        private AsyncKuduClient asyncClient;
+        private KuduClient client;
+
+        Context(ExampleArguments args, String[] rawArgs) {
+            this.args = args;
+            this.rawArgs = rawArgs;
+        }
+
+        public synchronized AsyncKuduClient asyncClient() {
+            if (asyncClient == null) {
+                asyncClient = args.newAsyncClient();
+                client = asyncClient.syncClient();
+            }
+            return asyncClient;
+        }
+
+        public synchronized KuduClient client() {
+            asyncClient();
+            return client;
+        }
+
+        void close() {
+            if (client != null) {
+                try {
+                    client.shutdown();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static class Registration {
+        final String description;
+        final boolean needsMasters;
+        final Mode mode;
+
+        Registration(String description, boolean needsMasters, Mode mode) {
+            this.description = description;
+            this.needsMasters = needsMasters;
+            this.mode = mode;
+        }
+    }
+
+    private static final Map<String, Registration> MODES = new LinkedHashMap<>();
+
+    static {
+        register(LOOKUP, "point lookups of the -f item ids, sharded over -n threads, --zeroAlloc without allocation", c -> {
+            ExampleArguments a = c.args;
+            if (a.zeroAlloc) {
+                ZeroAllocLookup.scanItems(c.client(), a.itemsIdFile, a.tableName, a.iteration,
+                        a.keyDistribution, a.newWarmup());
+            } else if (a.threads > 1) {
+                ShardedLookup.scanItems(c.client(), a.itemsIdFile, a.tableName, a.iteration,
+                        a.keyDistribution, a.threads, a.chunkSize, a.newWarmup(), a.clientSettings());
+            } else {
+                ScanItemTable.scanItems(c.client(), a.itemsIdFile, a.tableName, a.iteration,
+                        a.keyDistribution, a.newWarmup(), a.clientSettings());
+            }
+        });
+        register("exists", "key-only existence checks of the -f item ids behind a Bloom filter", c -> {
+            ExampleArguments a = c.args;
+            ExistenceCheck.checkItems(c.client(), a.itemsIdFile, a.tableName, a.iteration,
+                    a.keyDistribution, a.threads, a.bloomFpRate, a.bloomExpectedKeys);
+        });
+        register("projection", "lookups and range scans over projection widths", c -> {
+            ExampleArguments a = c.args;
+            ProjectionSweep.sweep(c.client(), a.itemsIdFile, a.tableName, a.iteration, a.widths, a.rangeRows,
+                    a.newWarmup());
+        });
+        register("incremental", "diff scans of the rows changed since the checkpoint", c -> {
+            ExampleArguments a = c.args;
+            IncrementalScan.scanChanges(c.client(), a.tableName, a.threads, a.checkpointFile,
+                    a.changesFile, a.compareFull);
+        });
+        register("tuning", "the lookups once per combination of the --sweep* client settings",
+                c -> TuningSweep.sweep(c.args));
+        register("ingest", "create -n tables and insert --rows rows into each", c -> {
+            c.args.operationMode = 3 | (c.args.operationMode & 16);
+            Example.runThreading(c.args, c.asyncClient());
+        });
+        register("scan", "create, insert, alter and scan -n tables, --exportDir exports them", c -> {
+            c.args.operationMode = 15 | (c.args.operationMode & 16);
+            Example.runThreading(c.args, c.asyncClient());
+        });
+        register(EXAMPLE, "the -m create/insert/alter/scan/delete steps on -n tables", c -> Example.runThreading(c.args, c.asyncClient()));
+        register("stress", "repeat the -m steps on -n threads for --durationMs", c -> Example.runStress(c.args, c.asyncClient(), false));
+        register("soak", "stress with a latency report every --reportIntervalMs", c -> Example.runStress(c.args, c.asyncClient(), true));
+        register("layouts", "compare the --layouts partition layouts", c -> PartitionLayoutSuite.runSuite(c.client(), c.args));
+        register("coordinator", "hand out this workload to -w workers and merge their histograms",
+                c -> Example.runCoordinator(c.args, c.rawArgs));
+        register("worker", false, "run the workload of the -c coordinator", c -> Example.runWorker(c.args));
+        register("list", "list all tables", c -> Example.ListAllTables(c.client()));
+        register("remove", "remove the -t table", c -> Example.RemoveTable(c.client(), c.args));
+    }
+
+    public static void register(String name, String description, Mode mode) {
+        register(name, true, description, mode);
+    }
+
+    public static void register(String name, boolean needsMasters, String description, Mode mode) {
+        MODES.put(name, new Registration(description, needsMasters, mode));
+    }
+
+    public static String usage() {
+        StringBuilder sb = new StringBuilder("modes:").append(System.lineSeparator());
+        for (Map.Entry<String, Registration> entry : MODES.entrySet()) {
+            sb.append(String.format("  %-12s %s", entry.getKey(), entry.getValue().description))
+                    .append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The mode the options ask for when --mode is missing.
+     */
+    public static String inferMode(ExampleArguments a, String fallback) {
+        if (a.coordinator != null) {
+            return "worker";
+        }
+        if (a.removeTable) {
+            return "remove";
+        }
+        if (a.listTable) {
+            return "list";
+        }
+        if (a.workers > 0) {
+            return "coordinator";
+        }
+        if (a.layouts != null) {
+            return "layouts";
+        }
+        if (a.incremental) {
+            return "incremental";
+        }
+        if (a.projectionSweep) {
+            return "projection";
+        }
+        if (a.existence) {
+            return "exists";
+        }
+        if (a.tuning) {
+            return "tuning";
+        }
+        if (fallback != null) {
+            return fallback;
+        }
+        if (a.itemsIdFile != null) {
+            return LOOKUP;
+        }
+        return a.duration > 0 ? "stress" : EXAMPLE;
+    }
+
+    /**
+     * @param defaultMode the mode when neither --mode nor the options pick one,
+     *                    null to infer it from the options
+     */
+    public static void run(String defaultMode, String[] args) {
+        BasicConfigurator.configure();
+        final ExampleArguments eArgParser = new ExampleArguments();
+        if (args.length < 1) {
+            System.out.println(usage());
+        }
+        if (!eArgParser.parseArgs(args)) {
+            return;
+        }
+        String name = eArgParser.mode != null ? eArgParser.mode : inferMode(eArgParser, defaultMode);
+        Registration registration = MODES.get(name);
+        if (registration == null) {
+            System.out.println("Unknown mode " + name + System.lineSeparator() + usage());
+            return;
+        }
+        if (registration.needsMasters && eArgParser.kuduMasters == null) {
+            System.out.println("No kudu masters");
+            return;
+        }
+        Context context = new Context(eArgParser, args);
+        try {
+            registration.mode.run(context);
+        } catch (Exception e) {
+            System.out.println(convertExceptionMessage(e));
+        } finally {
+            context.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        run(null, args);
+    }
+}
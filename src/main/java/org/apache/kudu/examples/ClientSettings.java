@@ -0,0 +1,61 @@
+package org.apache.kudu.examples;
+
+import org.apache.kudu.client.AsyncKuduClient;
+import org.apache.kudu.client.KuduScanner;
+
+/**
+ * The client and scanner settings a workload runs with. A value of 0 keeps
+ * the Kudu default.
+ */
+public class ClientSettings {
+    public final int workerCount;
+    public final long operationTimeoutMs;
+    public final long keepAlivePeriodMs;
+    public final int batchSizeBytes;
+    // the number of client instances a workload spreads its threads over
+    public final int clients;
+
+    public ClientSettings(int workerCount,
+                          long operationTimeoutMs,
+                          long keepAlivePeriodMs,
+                          int batchSizeBytes,
+                          int clients) {
+        this.workerCount = workerCount;
+        this.operationTimeoutMs = operationTimeoutMs;
+        this.keepAlivePeriodMs = keepAlivePeriodMs;
+        this.batchSizeBytes = batchSizeBytes;
+        this.clients = Math.max(1, clients);
+    }
+
+    public AsyncKuduClient newAsyncClient(String kuduMasters) {
+        AsyncKuduClient.AsyncKuduClientBuilder builder = new AsyncKuduClient.AsyncKuduClientBuilder(kuduMasters);
+        if (workerCount > 0) {
+            builder.workerCount(workerCount);
+        }
+        if (operationTimeoutMs > 0) {
+            builder.defaultOperationTimeoutMs(operationTimeoutMs);
+        }
+        return builder.build();
+    }
+
+    public KuduScanner.KuduScannerBuilder apply(KuduScanner.KuduScannerBuilder builder) {
+        if (keepAlivePeriodMs > 0) {
+            builder.keepAlivePeriodMs(keepAlivePeriodMs);
+        }
+        if (batchSizeBytes > 0) {
+            builder.batchSizeBytes(batchSizeBytes);
+        }
+        return builder;
+    }
+
+    private static String orDefault(long value) {
+        return value > 0 ? String.valueOf(value) : "default";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("workers=%s timeoutMs=%s keepAliveMs=%s batchBytes=%s clients=%d",
+                orDefault(workerCount), orDefault(operationTimeoutMs),
+                orDefault(keepAlivePeriodMs), orDefault(batchSizeBytes), clients);
+    }
+}
@@ -19,22 +19,28 @@ package org.apache.kudu.examples;
 
 import io.prometheus.client.*;
 import io.prometheus.client.exporter.*;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 
+import org.apache.kudu.client.AsyncKuduClient;
 import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.ListTablesResponse;
+import org.apache.kudu.examples.distributed.Coordinator;
+import org.apache.kudu.examples.distributed.Worker;
+import org.apache.kudu.examples.metrics.JfrRecording;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.examples.metrics.ThreadProfiler;
+import org.apache.kudu.examples.metrics.Warmup;
 import org.apache.kudu.examples.threading.StressExecutors;
-import org.apache.log4j.BasicConfigurator;
-import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.kudu.client.KuduClient;
 
 import static org.apache.kudu.examples.KuduOperations.*;
@@ -50,52 +56,21 @@ import static org.apache.kudu.examples.Utilities.convertExceptionMessage;
  */
 public class Example {
   public static final int CONSUMER_QUEUE_LEN = 1024;
+  /**
+   * @param client the client shared by all tasks, built by {@link ExampleArguments#newAsyncClient()}
+   *               which also does the Kerberos login
+   */
   public static String RunInternal(int threadId,
-                                   ExampleArguments eArgParser) {
-    final String kuduMasters = eArgParser.kuduMasters;
+                                   ExampleArguments eArgParser,
+                                   AsyncKuduClient client) {
     final String tableName = (eArgParser.tableName == null ?
             "java_example-" + System.currentTimeMillis() :
             eArgParser.tableName) + "_" + threadId;
-    if (eArgParser.useKerberos &&
-        eArgParser.keytab != null &&
-        eArgParser.principalName != null) {
-      try {
-        System.out.println("Thread " + threadId + ": Use kerberos for " +
-                eArgParser.principalName + " through " + eArgParser.keytab);
-        UserGroupInformation.loginUserFromKeytab(eArgParser.principalName, eArgParser.keytab);
-        final KuduClient secureClient = UserGroupInformation.getLoginUser().doAs(
-                new PrivilegedExceptionAction<KuduClient>() {
-
-                  @Override
-                  public KuduClient run() throws Exception {
-                    return new KuduClient.KuduClientBuilder(kuduMasters).build();
-                  }
-                }
-        );
-        Boolean result = UserGroupInformation.getLoginUser().doAs(
-                new PrivilegedExceptionAction<Boolean>() {
-                  public Boolean run() {
-                    kuduTableTest(tableName, secureClient, eArgParser);
-                    return true;
-                  }
-                }
-        );
-        System.out.println("Kudu table test: " + result);
-      } catch (Exception e) {
-        return convertExceptionMessage(e);
-      }
-    } else {
-      KuduClient client = new KuduClient.KuduClientBuilder(kuduMasters).build();
-      String rtn = kuduTableTest(tableName, client, eArgParser);
-      return rtn;
-    }
-    return null;
+    return kuduTableTest(tableName, client, eArgParser);
   }
 
-  public static void ListAllTables(ExampleArguments eArgParser) {
-    final String kuduMasters = eArgParser.kuduMasters;
+  public static void ListAllTables(KuduClient client) {
     StringBuffer sb = new StringBuffer();
-    KuduClient client = new KuduClient.KuduClientBuilder(kuduMasters).build();
     try {
       ListTablesResponse resp = client.getTablesList();
       List<String> tables = resp.getTablesList();
@@ -112,15 +87,13 @@ public class Example {
     }
   }
 
-  public static void RemoveTable(ExampleArguments eArgParser) {
-    final String kuduMasters = eArgParser.kuduMasters;
+  public static void RemoveTable(KuduClient client, ExampleArguments eArgParser) {
     if (eArgParser.tableName == null) {
       System.out.println("Missing tableName");
       return;
     }
 
     final String tableName = eArgParser.tableName;
-    KuduClient client = new KuduClient.KuduClientBuilder(kuduMasters).build();
     try {
       client.deleteTable(tableName);
       System.out.println("Table " + tableName + " was removed");
@@ -133,26 +106,28 @@ public class Example {
   {
     private int _threadId;
     private ExampleArguments _eArgParser;
+    private AsyncKuduClient _client;
 
-    public ThreadingKuduExecutor(int tid, ExampleArguments eArgParser) {
+    public ThreadingKuduExecutor(int tid, ExampleArguments eArgParser, AsyncKuduClient client) {
       _threadId = tid;
       _eArgParser = eArgParser;
+      _client = client;
     }
 
     @Override
     public String call() throws Exception {
-      return RunInternal(_threadId, _eArgParser);
+      return RunInternal(_threadId, _eArgParser, _client);
     }
   }
 
-  public static void runThreading(ExampleArguments eArgParser) {
+  public static void runThreading(ExampleArguments eArgParser, AsyncKuduClient client) {
     ThreadPoolExecutor executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(
             Runtime.getRuntime().availableProcessors());
     List<Future<String>> resultList = new ArrayList<Future<String>>();
 
     Example example = new Example();
     for (int i = 0; i < eArgParser.threads; i++) {
-      ThreadingKuduExecutor tke = example.new ThreadingKuduExecutor(i, eArgParser);
+      ThreadingKuduExecutor tke = example.new ThreadingKuduExecutor(i, eArgParser, client);
       Future<String> result = executorService.submit(tke);
       resultList.add(result);
     }
@@ -242,13 +217,64 @@ public class Example {
   }
 
   public static void multiThreadStressTest(final ExampleArguments eArgParser,
-                                           BlockingQueue<PrometheusItem> queue) {
+                                           final AsyncKuduClient client,
+                                           BlockingQueue<PrometheusItem> queue,
+                                           boolean soak) {
+    // the first run of every stress thread is its cold start, runs completing during the warmup
+    // are reported apart
+    final Warmup warmup = eArgParser.newWarmup();
+    final ThreadLocal<Boolean> threadStarted = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    final Recorder steady = LatencyReport.newRecorder();
+    final Histogram total = LatencyReport.newHistogram();
     StressExecutors se = new StressExecutors(eArgParser.threads, eArgParser.threads, eArgParser.duration);
+    final ThreadProfiler profiler = eArgParser.profile || eArgParser.jfrFile != null ? new ThreadProfiler() : null;
+    final JfrRecording jfr = eArgParser.jfrFile != null ? new JfrRecording(eArgParser.jfrFile) : null;
+    ScheduledExecutorService reporter = null;
+    if (soak || profiler != null) {
+      // a soak run reports every interval to show drift over time
+      reporter = Executors.newSingleThreadScheduledExecutor();
+      reporter.scheduleAtFixedRate(() -> {
+        if (soak) {
+          Histogram interval = steady.getIntervalHistogram();
+          synchronized (total) {
+            total.add(interval);
+          }
+          System.out.println(LatencyReport.summarize("interval", interval, eArgParser.reportIntervalMs));
+        }
+        if (profiler != null) {
+          System.out.print(profiler.sample());
+        }
+      }, eArgParser.reportIntervalMs, eArgParser.reportIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    if (profiler != null) {
+      // the measurement window starts once the warmup is done, starting JFR takes a while
+      // so it is done here rather than on a stress thread. The frequent polls keep the
+      // counters of the threads that exit before the next sample
+      reporter.scheduleWithFixedDelay(() -> {
+        if (warmup.isDone() && profiler.startOnce() && jfr != null) {
+          jfr.start();
+        }
+        profiler.poll();
+      }, 0, 100, TimeUnit.MILLISECONDS);
+    }
+    warmup.start();
     se.run((i) -> {
+      if (profiler != null) {
+        profiler.register();
+      }
       long start = System.currentTimeMillis();
-      String rtn = RunInternal(i, eArgParser);
+      String rtn = RunInternal(i, eArgParser, client);
       long end = System.currentTimeMillis();
       long duration = end - start;
+      long durationUs = TimeUnit.MILLISECONDS.toMicros(duration);
+      if (!threadStarted.get()) {
+        threadStarted.set(Boolean.TRUE);
+        warmup.recordCold(durationUs);
+      } else if (warmup.isDone()) {
+        steady.recordValue(durationUs);
+      } else {
+        warmup.record(durationUs);
+      }
       try {
         if (queue != null) {
           PrometheusItem item = new PrometheusItem();
@@ -271,57 +297,90 @@ public class Example {
     }, (s) -> {
       System.out.println(s);
     });
+    try {
+      se.awaitTermination(Long.MAX_VALUE);
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+    if (reporter != null) {
+      reporter.shutdownNow();
+      try {
+        // a report or a profiler poll may still be running
+        reporter.awaitTermination(eArgParser.reportIntervalMs, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        e.printStackTrace();
+      }
+    }
+    if (jfr != null) {
+      jfr.stop();
+    }
+    synchronized (total) {
+      total.add(steady.getIntervalHistogram());
+    }
+    System.out.println(warmup.report());
+    System.out.println(LatencyReport.summarize("steady-state", total,
+            Math.max(0, eArgParser.duration - warmup.getDoneMs())));
+    if (profiler != null) {
+      System.out.print(profiler.summary());
+    }
   }
 
-  public static void main(String[] args) {
-    BasicConfigurator.configure();
-    final ExampleArguments eArgParser = new ExampleArguments();
-    if (!eArgParser.parseArgs(args)) {
-      return;
-    };
-    if (eArgParser.kuduMasters == null) {
-      System.out.println("No kudu masters");
+  public static void runStress(final ExampleArguments eArgParser, AsyncKuduClient client, boolean soak) {
+    if (eArgParser.duration <= 0) {
+      System.out.println("Stress test requires --durationMs");
       return;
     }
-    if (eArgParser.removeTable) {
-      RemoveTable(eArgParser);
-      return;
+    BlockingQueue<PrometheusItem> queue = null;
+    PrometheusPusherConsumer consumer = null;
+    Thread t = null;
+    try {
+      if (eArgParser.prometheus_endpoint != null) {
+        queue = new ArrayBlockingQueue<>(CONSUMER_QUEUE_LEN);
+        consumer = new PrometheusPusherConsumer(eArgParser, queue);
+      }
+      if (consumer != null) {
+        t = new Thread(consumer);
+        t.start();
+      }
+      multiThreadStressTest(eArgParser, client, queue, soak);
+    } finally {
+      // stop the thread
+      if (t != null) {
+        try {
+          PrometheusItem item = new PrometheusItem();
+          item.end = true;
+          queue.put(item);
+          t.join();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
     }
-    if (eArgParser.listTable) {
-      ListAllTables(eArgParser);
+  }
+
+  public static void runCoordinator(final ExampleArguments eArgParser, String[] args) {
+    if (eArgParser.duration <= 0) {
+      System.out.println("Coordinator requires --durationMs");
       return;
     }
+    try {
+      // fail before waiting for the workers rather than on every one of them
+      Worker.workloadOf(eArgParser);
+      new Coordinator(eArgParser, args).run();
+    } catch (Exception e) {
+      System.out.println(convertExceptionMessage(e));
+    }
+  }
 
-    if (eArgParser.duration > 0) {
-      BlockingQueue<PrometheusItem> queue = null;
-      PrometheusPusherConsumer consumer = null;
-      Thread t = null;
-      try {
-        if (eArgParser.prometheus_endpoint != null) {
-          queue = new ArrayBlockingQueue<>(CONSUMER_QUEUE_LEN);
-          consumer = new PrometheusPusherConsumer(eArgParser, queue);
-        }
-        if (consumer != null) {
-          t = new Thread(consumer);
-          t.start();
-        }
-        multiThreadStressTest(eArgParser, queue);
-      } finally {
-        // stop the thread
-        if (t != null) {
-          try {
-            PrometheusItem item = new PrometheusItem();
-            item.end = true;
-            queue.put(item);
-            t.join();
-          } catch (Exception e) {
-            e.printStackTrace();
-          }
-        }
-      }
-
-    } else {
-      runThreading(eArgParser);
+  public static void runWorker(final ExampleArguments eArgParser) {
+    try {
+      new Worker(eArgParser.coordinator).run();
+    } catch (Exception e) {
+      System.out.println(convertExceptionMessage(e));
     }
   }
+
+  public static void main(String[] args) {
+    Benchmark.main(args);
+  }
 }
@@ -1,16 +1,28 @@
 package org.apache.kudu.examples;
 
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.kudu.client.AsyncKuduClient;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.Warmup;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+
 public class ExampleArguments {
+    @Option(name = "--mode",
+            usage = "Specify the workload mode, see the list printed without arguments. By default it follows the other options")
+    public String mode;
+
     @Option(name = "-k", aliases = "--kuduMasters", usage = "Specify the kudu masters")
     public String kuduMasters;
 
     @Option(name = "-m", aliases = "--operationMode",
             usage = "Specify the operation mode: [1/3/7/15/31]. 1: create table, 3: insert data to existing table, 7: alter table, 15: scanning table, 31: delete table. Default is 1")
-    public int mode = 1;
+    public int operationMode = 1;
 
     @Option(name = "-t", aliases = "--tableName", usage = "Specify the table name, otherwise it is java_example-xxx")
     public String tableName = null;
@@ -31,9 +43,19 @@ public class ExampleArguments {
     @Option(name = "-l", aliases = "--listTables", usage = "List all tables")
     public boolean listTable = false;
 
-    @Option(name = "-n", aliases = "--threads", usage = "Sepcify the thread number")
+    @Option(name = "-n", aliases = "--threads",
+            usage = "Specify the thread number. Lookups shard the item ids over the threads sharing one client, the other modes run one table per thread")
     public int threads = 1;
 
+    @Option(name = "-f", aliases = "--itemsFile", usage = "Specify the item ID list file of the lookup modes")
+    public String itemsIdFile;
+
+    @Option(name = "-i", aliases = "--iterations", usage = "Specify the lookup iteration count, default is 100")
+    public int iteration = 100;
+
+    @Option(name = "--chunkSize", usage = "Specify how many lookups a thread claims from a shard at once. Default is 16")
+    public int chunkSize = ShardedLookup.DEFAULT_CHUNK;
+
     @Option(name = "-r", aliases = "--rows", usage = "Specify the row number")
     public int rows = 150;
 
@@ -43,6 +65,218 @@ public class ExampleArguments {
     @Option(name = "-u", aliases = "--prometheus", usage = "Specify the prometheus endpoint: e.g. hms-asset00445326.stratus.lvs.ebay.com:9091")
     public String prometheus_endpoint;
 
+    @Option(name = "-w", aliases = "--workers",
+            usage = "Run as coordinator: wait for the given number of workers, hand out this command line as their workload and merge their histograms")
+    public int workers = 0;
+
+    @Option(name = "-c", aliases = "--coordinator", usage = "Run as worker and fetch the workload from the coordinator: e.g. localhost:7077")
+    public String coordinator;
+
+    @Option(name = "--coordinatorPort", usage = "Specify the port the coordinator listens on. Default is 7077")
+    public int coordinatorPort = 7077;
+
+    @Option(name = "--startDelayMs", usage = "Specify the delay between handing out the workload and the synchronized start. Default is 3000")
+    public int startDelayMs = 3000;
+
+    @Option(name = "--reportIntervalMs", usage = "Specify the interval of the histogram reports. Default is 1000")
+    public int reportIntervalMs = 1000;
+
+    @Option(name = "-g", aliases = "--keyDistribution",
+            usage = "Specify the key distribution: uniform, sequential, zipfian[:theta], scrambled[:theta], hotspot[:hotSetFraction[:hotOpFraction]], latest[:theta] or trace:file[:speed]. Default is sequential")
+    public String keyDistribution = KeyGenerators.SEQUENTIAL;
+
+    @Option(name = "--warmupMs", usage = "Specify the minimum warmup duration in ms before measuring. Default is 0")
+    public int warmupMs = 0;
+
+    @Option(name = "--steadyState", usage = "After --warmupMs keep warming up until throughput and mean latency are steady")
+    public boolean steadyState = false;
+
+    @Option(name = "--maxWarmupMs", usage = "Specify the maximum warmup duration in ms with --steadyState. Default is 60000")
+    public int maxWarmupMs = 60000;
+
+    @Option(name = "--steadyWindowMs", usage = "Specify the steady state detection window in ms. Default is 1000")
+    public int steadyWindowMs = 1000;
+
+    @Option(name = "--steadyWindows", usage = "Specify how many consecutive windows must be steady. Default is 5")
+    public int steadyWindows = 5;
+
+    @Option(name = "--steadyCv", usage = "Specify the maximum coefficient of variation of steady windows. Default is 0.05")
+    public double steadyCv = 0.05;
+
+    @Option(name = "--existence", usage = "Only check whether the item ids exist, with a key-only projection")
+    public boolean existence = false;
+
+    @Option(name = "--bloomFpRate",
+            usage = "With --existence, skip Kudu for ids not in a Bloom filter of all keys built with this false positive rate. 0 disables it. Default is 0.01")
+    public double bloomFpRate = 0.01;
+
+    @Option(name = "--bloomExpectedKeys",
+            usage = "Specify the number of ids the --existence Bloom filter is sized for. Default is 0, counting them with a scan")
+    public long bloomExpectedKeys = 0;
+
+    @Option(name = "--projectionSweep",
+            usage = "Sweep the projection width over fixed-width, nullable, string and mixed columns for lookups and range scans")
+    public boolean projectionSweep = false;
+
+    @Option(name = "--widths", usage = "Specify the projection widths of --projectionSweep. Default is 1,5,20,all")
+    public String widths = ProjectionSweep.DEFAULT_WIDTHS;
+
+    @Option(name = "--rangeRows", usage = "Specify the row limit of the --projectionSweep range scans. Default is 10000")
+    public long rangeRows = 10000;
+
+    @Option(name = "--zeroAlloc",
+            usage = "Look up with prebuilt predicates, reused row results and primitive result slots, and report the allocation and GC time")
+    public boolean zeroAlloc = false;
+
+    @Option(name = "--incremental",
+            usage = "Emit the rows changed since the checkpoint with parallel diff scans, then move the checkpoint to now")
+    public boolean incremental = false;
+
+    @Option(name = "--checkpointFile", usage = "Specify the --incremental checkpoint file. Default is kudu_scan.checkpoint")
+    public String checkpointFile = "kudu_scan.checkpoint";
+
+    @Option(name = "--changesFile", usage = "Specify the file the --incremental changed rows go to. Default is changes.txt")
+    public String changesFile = "changes.txt";
+
+    @Option(name = "--compareFull", usage = "With --incremental, also rescan the whole table at the same snapshot")
+    public boolean compareFull = false;
+
+    @Option(name = "--layouts",
+            usage = "Compare partition layouts of a wide table, e.g. hash:8,hash:32,hash:8+range:4,hash:8+hash:4. --rows rows are loaded into each")
+    public String layouts;
+
+    @Option(name = "--columns", usage = "Specify the number of filler columns of the --layouts wide table. Default is 100")
+    public int columns = 100;
+
+    @Option(name = "--lookups", usage = "Specify the number of point lookups per layout. Default is 1000")
+    public int lookups = 1000;
+
+    @Option(name = "--scans", usage = "Specify the number of range scans per layout. Default is 100")
+    public int scans = 100;
+
+    @Option(name = "--asyncWrite",
+            usage = "Insert through an AsyncKuduSession and report per-operation write latency, flush sizes and buffer occupancy")
+    public boolean asyncWrite = false;
+
+    @Option(name = "--batchOps", usage = "Specify the operations per flush with --asyncWrite. Default is 1000")
+    public int batchOps = AsyncWriteBenchmark.DEFAULT_BATCH_OPS;
+
+    @Option(name = "--maxBufferedBytes", usage = "Specify the bound of unacknowledged bytes with --asyncWrite. Default is 8388608")
+    public int maxBufferedBytes = AsyncWriteBenchmark.DEFAULT_MAX_BUFFERED_BYTES;
+
+    @Option(name = "--exportDir",
+            usage = "After the scan step, export the whole table into binary columnar files in this directory")
+    public String exportDir;
+
+    @Option(name = "--exportThreads", usage = "Specify the number of --exportDir writers. Default is 4")
+    public int exportThreads = 4;
+
+    @Option(name = "--exportBufferBytes",
+            usage = "Specify the buffer memory of one --exportDir writer, split over the columns. Default is 16777216")
+    public int exportBufferBytes = ScanExporter.DEFAULT_BUFFER_BYTES;
+
+    @Option(name = "--workerCount", usage = "Specify the client I/O worker thread count. Default is the Kudu default")
+    public int workerCount = 0;
+
+    @Option(name = "--operationTimeoutMs", usage = "Specify the client operation timeout in ms. Default is the Kudu default")
+    public long operationTimeoutMs = 0;
+
+    @Option(name = "--keepAliveMs", usage = "Specify the scanner keep-alive period in ms. Default is the Kudu default")
+    public long keepAliveMs = 0;
+
+    @Option(name = "--scanBatchBytes", usage = "Specify the scanner batch size in bytes. Default is the Kudu default")
+    public int scanBatchBytes = 0;
+
+    @Option(name = "--tuning",
+            usage = "Run the lookups once per combination of the --sweep* client settings and print a throughput and latency table")
+    public boolean tuning = false;
+
+    @Option(name = "--sweepWorkerCounts", usage = "Specify the --tuning worker counts, 0 is the Kudu default. Default is 0,4,16")
+    public String sweepWorkerCounts = "0,4,16";
+
+    @Option(name = "--sweepOperationTimeoutsMs", usage = "Specify the --tuning operation timeouts, 0 is the Kudu default. Default is 0")
+    public String sweepOperationTimeoutsMs = "0";
+
+    @Option(name = "--sweepKeepAliveMs", usage = "Specify the --tuning scanner keep-alive periods, 0 is the Kudu default. Default is 0")
+    public String sweepKeepAliveMs = "0";
+
+    @Option(name = "--sweepBatchBytes", usage = "Specify the --tuning scanner batch sizes, 0 is the Kudu default. Default is 0,65536")
+    public String sweepBatchBytes = "0,65536";
+
+    @Option(name = "--sweepClients", usage = "Specify the --tuning client instances per JVM. Default is 1,4")
+    public String sweepClients = "1,4";
+
+    @Option(name = "--profile",
+            usage = "Report the CPU time and the blocked and waited counts of the stress threads every --reportIntervalMs and for the run")
+    public boolean profile = false;
+
+    @Option(name = "--jfrFile", usage = "Record the stress measurement window with Java Flight Recorder into this file, implies --profile")
+    public String jfrFile;
+
+    public ClientSettings clientSettings() {
+        return new ClientSettings(workerCount, operationTimeoutMs, keepAliveMs, scanBatchBytes, 1);
+    }
+
+    /**
+     * Every mode builds its clients here so that they share the same settings,
+     * with -b as the -p principal logged in from the -e keytab.
+     */
+    public AsyncKuduClient newAsyncClient() {
+        return newAsyncClient(clientSettings());
+    }
+
+    /**
+     * A client with other settings than the options, as the tuning sweep builds, behind the same login.
+     */
+    public AsyncKuduClient newAsyncClient(final ClientSettings settings) {
+        if (!useKerberos || keytab == null || principalName == null) {
+            return settings.newAsyncClient(kuduMasters);
+        }
+        try {
+            System.out.println("Use kerberos for " + principalName + " through " + keytab);
+            UserGroupInformation.loginUserFromKeytab(principalName, keytab);
+            return UserGroupInformation.getLoginUser().doAs(
+                    (PrivilegedExceptionAction<AsyncKuduClient>) () -> settings.newAsyncClient(kuduMasters));
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException("Kerberos login of " + principalName + " failed", e);
+        }
+    }
+
+    public KuduClient newClient() {
+        return newAsyncClient().syncClient();
+    }
+
+    public Warmup newWarmup() {
+        return new Warmup(warmupMs, steadyState, maxWarmupMs, steadyWindowMs, steadyWindows, steadyCv);
+    }
+
+    /**
+     * @return why the options can't run, null if they can
+     */
+    String validate() {
+        if (steadyWindows < 1) {
+            return "--steadyWindows must be at least 1";
+        }
+        if (steadyWindowMs < 1) {
+            return "--steadyWindowMs must be at least 1";
+        }
+        try {
+            ProjectionSweep.parseWidths(widths, Integer.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            return "--widths: " + e.getMessage();
+        }
+        if (chunkSize < 1) {
+            return "--chunkSize must be at least 1";
+        }
+        if (batchOps < 1) {
+            return "--batchOps must be at least 1";
+        }
+        if (maxBufferedBytes < AsyncWriteBenchmark.MAX_OPERATION_BYTES) {
+            return "--maxBufferedBytes must hold one operation of " + AsyncWriteBenchmark.MAX_OPERATION_BYTES + " bytes";
+        }
+        return null;
+    }
+
     public boolean parseArgs(final String[] args) {
         final CmdLineParser parser = new CmdLineParser(this);
         if (args.length < 1) {
@@ -56,6 +290,11 @@ public class ExampleArguments {
             System.out.println("Error: failed to parse command-line opts: " + ex);
             ret = false;
         }
+        String error = ret ? validate() : null;
+        if (error != null) {
+            System.out.println("Error: " + error);
+            ret = false;
+        }
         return ret;
     }
 }
@@ -0,0 +1,284 @@
+package org.apache.kudu.examples;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduPredicate;
+import org.apache.kudu.client.KuduScanToken;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResultIterator;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.util.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers "is this item id present" as cheaply as possible. The lookup only
+ * projects the key column and stops after one row. Optionally a client-side
+ * Bloom filter of all known ids is built first from a parallel key-only scan
+ * over scan tokens, so definite misses never reach Kudu. The filter is sized
+ * up front, from the expected key count or a count scan, and the keys go
+ * into it while scanning, so building it takes the filter and one scanner
+ * batch per thread. The filter is a snapshot: ids inserted after it was
+ * built are reported as absent.
+ */
+public class ExistenceCheck {
+    public static final String KEY_COLUMN = "item_id";
+    // the scanner batch of the build scans, the only build memory besides the filter
+    static final int BUILD_BATCH_BYTES = 1024 * 1024;
+
+    private final KuduClient client;
+    private final KuduTable table;
+    private final List<String> keyColumn = new ArrayList<>(1);
+    private BloomFilter bloom;
+    private int bloomBytes;
+    private long bloomKeys;
+    private long bloomExpectedKeys;
+    private long buildPeakBytes;
+
+    /**
+     * The latencies of the checks by outcome.
+     */
+    public static class Result {
+        public final Histogram filtered = LatencyReport.newHistogram();
+        public final Histogram hits = LatencyReport.newHistogram();
+        public final Histogram misses = LatencyReport.newHistogram();
+        public long falsePositives;
+        public long elapsedMs;
+
+        /**
+         * The absent ids, answered by the filter or by Kudu.
+         */
+        public long negatives() {
+            return filtered.getTotalCount() + misses.getTotalCount();
+        }
+
+        public long total() {
+            return negatives() + hits.getTotalCount();
+        }
+
+        public double falsePositiveRate() {
+            return negatives() == 0 ? 0 : falsePositives / (double) negatives();
+        }
+    }
+
+    public ExistenceCheck(KuduClient client, KuduTable table) {
+        this.client = client;
+        this.table = table;
+        keyColumn.add(KEY_COLUMN);
+    }
+
+    /**
+     * Key-only lookup in Kudu.
+     */
+    public boolean exists(long item) throws KuduException {
+        KuduPredicate predicate = KuduPredicate.newComparisonPredicate(
+                table.getSchema().getColumn(KEY_COLUMN),
+                KuduPredicate.ComparisonOp.EQUAL,
+                item);
+        KuduScanner scanner = client.newScannerBuilder(table)
+                .setProjectedColumnNames(keyColumn)
+                .cacheBlocks(false)
+                .addPredicate(predicate)
+                .limit(1)
+                .build();
+        boolean found = false;
+        while (scanner.hasMoreRows()) {
+            if (scanner.nextRows().getNumRows() > 0) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    private List<KuduScanToken> keyTokens(List<String> projection) throws KuduException {
+        return client.newScanTokenBuilder(table)
+                .setProjectedColumnNames(projection)
+                .batchSizeBytes(BUILD_BATCH_BYTES)
+                .cacheBlocks(false)
+                .build();
+    }
+
+    /**
+     * Run one task per scan token and sum their counts.
+     */
+    private long forEachToken(List<KuduScanToken> tokens, int threads, TokenTask task) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> futures = new ArrayList<>(tokens.size());
+            for (KuduScanToken token : tokens) {
+                futures.add(executorService.submit(() -> task.run(token.intoScanner(client))));
+            }
+            long count = 0;
+            for (Future<Long> future : futures) {
+                count += future.get();
+            }
+            return count;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private interface TokenTask {
+        long run(KuduScanner scanner) throws Exception;
+    }
+
+    /**
+     * Count the rows with an empty projection, which returns no column data.
+     */
+    public long countKeys(int threads) throws Exception {
+        return forEachToken(keyTokens(new ArrayList<>()), threads, scanner -> {
+            long count = 0;
+            while (scanner.hasMoreRows()) {
+                count += scanner.nextRows().getNumRows();
+            }
+            return count;
+        });
+    }
+
+    /**
+     * The bytes of a filter of count keys at fpRate, the standard -n ln(p) / ln(2)^2 bits.
+     */
+    static long filterBytes(long count, double fpRate) {
+        return (long) Math.ceil(-count * Math.log(fpRate) / (Math.log(2) * Math.log(2)) / 8);
+    }
+
+    /**
+     * Build the Bloom filter of every id in the table with a key-only scan,
+     * one scan token per task, inserting every batch as it arrives.
+     * @param expectedKeys the number of ids, 0 to count them with a scan first
+     */
+    public void buildBloomFilter(double fpRate, int threads, long expectedKeys) throws Exception {
+        long expected = expectedKeys > 0 ? expectedKeys : countKeys(threads);
+        long bytes = filterBytes(Math.max(1, expected), fpRate);
+        // Kudu's filter counts its bits in an int
+        if (bytes > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException(String.format(
+                    "a Bloom filter of %d keys at fp rate %s takes %d bytes, more than the %d bytes one filter holds",
+                    expected, fpRate, bytes, Integer.MAX_VALUE / 8));
+        }
+        final BloomFilter filter = BloomFilter.bySizeAndFPRate((int) bytes, fpRate);
+        List<KuduScanToken> tokens = keyTokens(keyColumn);
+        long inserted = forEachToken(tokens, threads, scanner -> {
+            scanner.setReuseRowResult(true);
+            long count = 0;
+            while (scanner.hasMoreRows()) {
+                RowResultIterator results = scanner.nextRows();
+                count += results.getNumRows();
+                // the filter is not thread-safe, a whole batch goes in under one lock
+                synchronized (filter) {
+                    while (results.hasNext()) {
+                        filter.put(results.next().getLong(0));
+                    }
+                }
+            }
+            return count;
+        });
+        bloom = filter;
+        bloomKeys = inserted;
+        bloomExpectedKeys = expected;
+        bloomBytes = (int) bytes;
+        // the filter and the batches of the scans running at once
+        buildPeakBytes = bytes + (long) Math.max(1, Math.min(threads, tokens.size())) * BUILD_BATCH_BYTES;
+    }
+
+    public long getBloomKeys() {
+        return bloomKeys;
+    }
+
+    public long getBloomExpectedKeys() {
+        return bloomExpectedKeys;
+    }
+
+    public int getBloomBytes() {
+        return bloomBytes;
+    }
+
+    /**
+     * Check the next checks ids of keys, behind the Bloom filter if one was built.
+     */
+    public Result check(KeyGenerator keys, long checks) throws KuduException {
+        Result result = new Result();
+        long begin = System.currentTimeMillis();
+        for (long i = 0; i < checks; i++) {
+            long item = keys.nextKey();
+            long start = System.nanoTime();
+            if (bloom != null && !bloom.mayContain(item)) {
+                result.filtered.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                continue;
+            }
+            boolean found = exists(item);
+            long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            if (found) {
+                result.hits.recordValue(latency);
+            } else {
+                result.misses.recordValue(latency);
+                if (bloom != null) {
+                    result.falsePositives++;
+                }
+            }
+        }
+        result.elapsedMs = System.currentTimeMillis() - begin;
+        return result;
+    }
+
+    public static void checkItems(KuduClient client,
+                                  String itemIdFile,
+                                  String tableName,
+                                  int iteration,
+                                  String keyDistribution,
+                                  int threads,
+                                  double bloomFpRate,
+                                  long bloomExpectedKeys) {
+        System.out.println("item id file: " + itemIdFile);
+        System.out.println("kudu table: " + tableName);
+        System.out.println("iteration: " + iteration);
+        try {
+            long[] itemIds = ScanItemTable.toArray(ScanItemTable.readFileLines(itemIdFile));
+            if (itemIds.length == 0) {
+                System.out.println("No item ID to check in " + itemIdFile);
+                return;
+            }
+            KeyGenerator keys = new KeyGenerators(keyDistribution, itemIds).forThread(0, 1);
+            ExistenceCheck check = new ExistenceCheck(client, client.openTable(tableName));
+            if (bloomFpRate > 0) {
+                long start = System.currentTimeMillis();
+                check.buildBloomFilter(bloomFpRate, threads, bloomExpectedKeys);
+                System.out.println("Bloom filter of " + check.bloomKeys + " keys (sized for " +
+                        check.bloomExpectedKeys + ") takes " + check.bloomBytes + " bytes (" +
+                        check.bloom.getNumHashes() + " hashes), building it takes " +
+                        (System.currentTimeMillis() - start) + " ms and at most " + check.buildPeakBytes +
+                        " bytes with the scanner batches");
+                if (check.bloomKeys > check.bloomExpectedKeys) {
+                    System.out.println("More keys than expected, the false positive rate is above the target");
+                }
+            }
+
+            Result result = check.check(keys, (long) iteration * itemIds.length);
+            long elapsedMs = result.elapsedMs;
+            long negatives = result.negatives();
+            long total = result.total();
+            long filtered = result.filtered.getTotalCount();
+            System.out.println(LatencyReport.summarize("present", result.hits, elapsedMs));
+            System.out.println(LatencyReport.summarize("absent (kudu)", result.misses, elapsedMs));
+            System.out.println(LatencyReport.summarize("absent (bloom filter)", result.filtered, elapsedMs));
+            System.out.println(String.format("%d checks in %d ms (%.1f qps), %d absent, %d RPCs saved (%.1f%%)",
+                    total, elapsedMs, LatencyReport.qps(total, elapsedMs), negatives,
+                    filtered, total == 0 ? 0 : filtered * 100.0 / total));
+            if (check.bloom != null) {
+                System.out.println(String.format("Bloom filter false positive rate: %.4f (%d of %d absent ids), target %.4f",
+                        result.falsePositiveRate(), result.falsePositives, negatives, bloomFpRate));
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+}
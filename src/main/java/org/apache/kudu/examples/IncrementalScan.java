@@ -0,0 +1,243 @@
+package org.apache.kudu.examples;
+
+import org.apache.kudu.client.AsyncKuduClient;
+import org.apache.kudu.client.AsyncKuduScanner;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduScanToken;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResult;
+import org.apache.kudu.client.RowResultIterator;
+import org.apache.kudu.examples.metrics.LatencyReport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Emits the item rows changed since the last checkpoint. Every run picks a
+ * new snapshot timestamp, diff scans (checkpoint, snapshot] over scan tokens
+ * in parallel, writes the changed rows as "U item_id,price" and the deleted
+ * ones as "D item_id", and only then stores the snapshot as the next
+ * checkpoint, so an interrupted run is simply repeated. The first run has no
+ * checkpoint and only records one. The snapshot comes from the cluster's
+ * clock, not the client's. A full snapshot rescan at the same timestamp,
+ * writing every row as a consumer without checkpoints does, can be run for
+ * comparison.
+ */
+public class IncrementalScan {
+    public static final String KEY_COLUMN = "item_id";
+    public static final String PRICE_COLUMN = "curnt_price";
+
+    private final KuduClient client;
+    private final KuduTable table;
+    private final int threads;
+    private final List<String> projection = new ArrayList<>(2);
+
+    public static class Result {
+        public long rows;
+        public long deleted;
+        public long elapsedMs;
+
+        public double rowsPerSec() {
+            return LatencyReport.qps(rows, elapsedMs);
+        }
+    }
+
+    public IncrementalScan(KuduClient client, KuduTable table, int threads) {
+        this.client = client;
+        this.table = table;
+        this.threads = Math.max(1, threads);
+        projection.add(KEY_COLUMN);
+        projection.add(PRICE_COLUMN);
+    }
+
+    /**
+     * A snapshot timestamp from the cluster: a snapshot scan without a
+     * timestamp propagates the tablet server's time to the client, so a
+     * skewed client clock can't move the checkpoint past rows not yet
+     * visible. It is no older than anything this client wrote or read.
+     */
+    public long newSnapshot() throws KuduException {
+        KuduScanner scanner = client.newScannerBuilder(table)
+                .setProjectedColumnNames(new ArrayList<>())
+                .readMode(AsyncKuduScanner.ReadMode.READ_AT_SNAPSHOT)
+                .cacheBlocks(false)
+                .limit(1)
+                .build();
+        try {
+            while (scanner.hasMoreRows()) {
+                scanner.nextRows();
+            }
+        } finally {
+            scanner.close();
+        }
+        long timestamp = client.getLastPropagatedTimestamp();
+        if (timestamp == AsyncKuduClient.NO_TIMESTAMP) {
+            throw new IllegalStateException("No timestamp from the tablet servers of " + table.getName());
+        }
+        return timestamp;
+    }
+
+    /**
+     * @return the checkpoint in the file, or -1 if there is none yet
+     */
+    public static long readCheckpoint(String checkpointFile) throws IOException {
+        Path path = Paths.get(checkpointFile);
+        if (!Files.exists(path)) {
+            return -1;
+        }
+        String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? -1 : Long.parseLong(content);
+    }
+
+    public static void writeCheckpoint(String checkpointFile, long timestamp) throws IOException {
+        Path path = Paths.get(checkpointFile).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, String.valueOf(timestamp).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Result scanTokens(List<KuduScanToken> tokens, Writer out) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, tokens.size())));
+        Result result = new Result();
+        long start = System.currentTimeMillis();
+        try {
+            List<Future<long[]>> futures = new ArrayList<>(tokens.size());
+            for (KuduScanToken token : tokens) {
+                futures.add(pool.submit(() -> scanToken(token, out)));
+            }
+            for (Future<long[]> f : futures) {
+                long[] counts = f.get();
+                result.rows += counts[0];
+                result.deleted += counts[1];
+            }
+        } finally {
+            pool.shutdown();
+        }
+        result.elapsedMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * @return the row count and the deleted row count of the token
+     */
+    private long[] scanToken(KuduScanToken token, Writer out) throws Exception {
+        long rows = 0;
+        long deleted = 0;
+        StringBuilder sb = new StringBuilder();
+        KuduScanner scanner = token.intoScanner(client);
+        scanner.setReuseRowResult(true);
+        while (scanner.hasMoreRows()) {
+            RowResultIterator results = scanner.nextRows();
+            while (results.hasNext()) {
+                RowResult row = results.next();
+                boolean isDeleted = row.hasIsDeleted() && row.isDeleted();
+                rows++;
+                if (isDeleted) {
+                    deleted++;
+                }
+                if (out != null) {
+                    if (isDeleted) {
+                        sb.append("D ").append(row.getLong(0));
+                    } else {
+                        sb.append("U ").append(row.getLong(0)).append(',')
+                                .append(row.isNull(1) ? "null" : String.valueOf(row.getDouble(1)));
+                    }
+                    sb.append('\n');
+                }
+            }
+            // one write per batch keeps the lines of the workers apart
+            if (out != null && sb.length() > 0) {
+                synchronized (out) {
+                    out.write(sb.toString());
+                }
+                sb.setLength(0);
+            }
+        }
+        return new long[]{rows, deleted};
+    }
+
+    /**
+     * Diff scan the rows changed in (start, end].
+     */
+    public Result diffScan(long start, long end, Writer out) throws Exception {
+        List<KuduScanToken> tokens = client.newScanTokenBuilder(table)
+                .setProjectedColumnNames(projection)
+                .cacheBlocks(false)
+                .diffScan(start, end)
+                .build();
+        return scanTokens(tokens, out);
+    }
+
+    /**
+     * Rescan the whole table at the snapshot and write every row, as consumers do without checkpoints.
+     */
+    public Result fullScan(long snapshot, Writer out) throws Exception {
+        List<KuduScanToken> tokens = client.newScanTokenBuilder(table)
+                .setProjectedColumnNames(projection)
+                .cacheBlocks(false)
+                .readMode(AsyncKuduScanner.ReadMode.READ_AT_SNAPSHOT)
+                .snapshotTimestampRaw(snapshot)
+                .build();
+        return scanTokens(tokens, out);
+    }
+
+    public static void scanChanges(KuduClient client,
+                                   String tableName,
+                                   int threads,
+                                   String checkpointFile,
+                                   String changesFile,
+                                   boolean compareFull) {
+        System.out.println("kudu table: " + tableName);
+        System.out.println("checkpoint file: " + checkpointFile + ", changes file: " + changesFile);
+        try {
+            IncrementalScan scan = new IncrementalScan(client, client.openTable(tableName), threads);
+            long checkpoint = readCheckpoint(checkpointFile);
+            long snapshot = scan.newSnapshot();
+            if (checkpoint < 0) {
+                System.out.println("No checkpoint yet, the next run emits the changes after " + snapshot);
+            } else if (snapshot <= checkpoint) {
+                System.out.println("The checkpoint " + checkpoint + " is not older than the snapshot " + snapshot);
+                return;
+            } else {
+                Result diff;
+                try (BufferedWriter out = Files.newBufferedWriter(Paths.get(changesFile), StandardCharsets.UTF_8)) {
+                    diff = scan.diffScan(checkpoint, snapshot, out);
+                }
+                System.out.println(String.format("Diff scan (%d, %d]: %d changed rows, %d deleted, %d ms, %.1f rows/s",
+                        checkpoint, snapshot, diff.rows, diff.deleted, diff.elapsedMs, diff.rowsPerSec()));
+                if (compareFull) {
+                    // the rescan writes its rows like the diff scan, to a file dropped afterwards
+                    Path fullFile = Files.createTempFile(
+                            Paths.get(changesFile).toAbsolutePath().getParent(), "full-", ".txt");
+                    Result full;
+                    try (BufferedWriter out = Files.newBufferedWriter(fullFile, StandardCharsets.UTF_8)) {
+                        full = scan.fullScan(snapshot, out);
+                    } finally {
+                        Files.deleteIfExists(fullFile);
+                    }
+                    System.out.println(String.format("Full rescan at %d: %d rows, %d ms, %.1f rows/s, " +
+                                    "the diff scan read %.2f%% of the rows in %.2f%% of the time",
+                            snapshot, full.rows, full.elapsedMs, full.rowsPerSec(),
+                            full.rows == 0 ? 0 : diff.rows * 100.0 / full.rows,
+                            full.elapsedMs == 0 ? 0 : diff.elapsedMs * 100.0 / full.elapsedMs));
+                }
+            }
+            writeCheckpoint(checkpointFile, snapshot);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+}
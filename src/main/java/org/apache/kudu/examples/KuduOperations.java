@@ -4,6 +4,8 @@ import org.apache.kudu.ColumnSchema;
 import org.apache.kudu.Schema;
 import org.apache.kudu.Type;
 import org.apache.kudu.client.*;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +14,7 @@ import static org.apache.kudu.examples.Utilities.convertExceptionMessage;
 
 public class KuduOperations {
     public static final Double DEFAULT_DOUBLE = 12.345;
+    public static final int RANGE_SCAN_KEYS = 10;
     static String createExampleTable(KuduClient client, String tableName)  throws KuduException {
         // Set up a simple schema.
         List<ColumnSchema> columns = new ArrayList<>(2);
@@ -36,21 +39,42 @@ public class KuduOperations {
         return "Created table " + tableName + System.lineSeparator();
     }
 
-    static String insertRows(KuduClient client, String tableName, int numRows) throws KuduException {
+    /**
+     * The example table keys are INT32, a generated key outside of it would be
+     * truncated into a different row.
+     */
+    static int toIntKey(long key) {
+        if (key < Integer.MIN_VALUE || key > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("key " + key + " is out of the range of the INT32 key column");
+        }
+        return (int) key;
+    }
+
+    static Operation newWriteOperation(KuduTable table, int key, boolean sequential) {
+        // Only the sequential distribution writes every key once, the others upsert.
+        Operation op = sequential ? table.newInsert() : table.newUpsert();
+        PartialRow row = op.getRow();
+        row.addInt("key", key);
+        // Make even-keyed row have a null 'value'.
+        if (key % 2 == 0) {
+            row.setNull("value");
+        } else {
+            row.addString("value", "value " + key);
+        }
+        return op;
+    }
+
+    static String insertRows(KuduClient client, String tableName, int numRows,
+                             KeyGenerators keyGenerators) throws KuduException {
         // Open the newly-created table and create a KuduSession.
         KuduTable table = client.openTable(tableName);
         KuduSession session = client.newSession();
+        KeyGenerator keys = keyGenerators.forThread(0, 1);
         for (int i = 0; i < numRows; i++) {
-            Insert insert = table.newInsert();
-            PartialRow row = insert.getRow();
-            row.addInt("key", i);
-            // Make even-keyed row have a null 'value'.
-            if (i % 2 == 0) {
-                row.setNull("value");
-            } else {
-                row.addString("value", "value " + i);
-            }
-            session.apply(insert);
+            int key = toIntKey(keys.nextKey());
+            // the default AUTO_FLUSH_SYNC session has written the row once apply returns
+            session.apply(newWriteOperation(table, key, keyGenerators.isSequential()));
+            keyGenerators.publish(key);
         }
 
         // Call session.close() to end the session and ensure the rows are
@@ -138,48 +162,100 @@ public class KuduOperations {
         return "Scanned some rows and checked the results" + System.lineSeparator();
     }
 
+    static String asyncInsertRows(AsyncKuduClient asyncClient, ExampleArguments eArgParser, String tableName,
+                                  int numRows, KeyGenerators keyGenerators) throws Exception {
+        return new AsyncWriteBenchmark(asyncClient, eArgParser.batchOps, eArgParser.maxBufferedBytes)
+                .run(tableName, numRows, keyGenerators);
+    }
+
+    /**
+     * Run short range scans of RANGE_SCAN_KEYS keys, starting at keys drawn
+     * from the key distribution.
+     */
+    static String scanKeyRanges(KuduClient client, String tableName, int numRows,
+                                KeyGenerator keys) throws KuduException {
+        KuduTable table = client.openTable(tableName);
+        Schema schema = table.getSchema();
+        List<String> projectColumns = new ArrayList<>(2);
+        projectColumns.add("key");
+        projectColumns.add("value");
+        int scans = Math.max(1, numRows / RANGE_SCAN_KEYS);
+        long resultCount = 0;
+        for (int i = 0; i < scans; i++) {
+            long lowerBound = keys.nextKey();
+            KuduScanner scanner = client.newScannerBuilder(table)
+                    .setProjectedColumnNames(projectColumns)
+                    .addPredicate(KuduPredicate.newComparisonPredicate(
+                            schema.getColumn("key"),
+                            KuduPredicate.ComparisonOp.GREATER_EQUAL,
+                            lowerBound))
+                    .addPredicate(KuduPredicate.newComparisonPredicate(
+                            schema.getColumn("key"),
+                            KuduPredicate.ComparisonOp.LESS,
+                            lowerBound + RANGE_SCAN_KEYS))
+                    .build();
+            while (scanner.hasMoreRows()) {
+                resultCount += scanner.nextRows().getNumRows();
+            }
+        }
+        return "Ran " + scans + " range scans of " + RANGE_SCAN_KEYS + " keys and got " +
+                resultCount + " rows" + System.lineSeparator();
+    }
+
+    /**
+     * @param asyncClient the client shared with the other tasks, it stays open
+     */
     public static String kuduTableTest(String tableName,
-                                       KuduClient client,
+                                       AsyncKuduClient asyncClient,
                                        ExampleArguments eArgParser) {
+        KuduClient client = asyncClient.syncClient();
         StringBuffer sb = new StringBuffer();
         try {
-            if ((eArgParser.mode & 1 ) == 1) {
+            if ((eArgParser.operationMode & 1 ) == 1) {
                 createExampleTable(client, tableName);
                 sb.append("Successfully create kudu table: ").append(tableName).append(System.lineSeparator());
             }
             int numRows = eArgParser.rows;
-            if ((eArgParser.mode & 2) == 2) {
-                sb.append(insertRows(client, tableName, numRows));
+            KeyGenerators keyGenerators = new KeyGenerators(eArgParser.keyDistribution, numRows);
+            if ((eArgParser.operationMode & 2) == 2) {
+                if (eArgParser.asyncWrite) {
+                    sb.append(asyncInsertRows(asyncClient, eArgParser, tableName, numRows, keyGenerators));
+                } else {
+                    sb.append(insertRows(client, tableName, numRows, keyGenerators));
+                }
             }
 
             // Alter the table, adding a column with a default value.
             // Note: after altering the table, the table needs to be re-opened.
-            if ((eArgParser.mode & 4) == 4) {
+            if ((eArgParser.operationMode & 4) == 4) {
                 AlterTableOptions ato = new AlterTableOptions();
                 ato.addColumn("added", org.apache.kudu.Type.DOUBLE, DEFAULT_DOUBLE);
                 client.alterTable(tableName, ato);
                 sb.append("Altered the table").append(System.lineSeparator());
             }
 
-            if ((eArgParser.mode & 8) == 8) {
-                sb.append(scanTableAndCheckResults(client, tableName, numRows));
+            if ((eArgParser.operationMode & 8) == 8) {
+                // the expected results are only known when every key was written once
+                if (keyGenerators.isSequential()) {
+                    sb.append(scanTableAndCheckResults(client, tableName, numRows));
+                } else {
+                    sb.append(scanKeyRanges(client, tableName, numRows, keyGenerators.forThread(0, 1)));
+                }
+                if (eArgParser.exportDir != null) {
+                    sb.append(ScanExporter.export(client, tableName, eArgParser.exportDir,
+                            eArgParser.exportThreads, eArgParser.exportBufferBytes));
+                }
             }
         } catch (Exception e) {
             return convertExceptionMessage(e);
         } finally {
             try {
-                if ((eArgParser.mode & 16) == 16) {
+                if ((eArgParser.operationMode & 16) == 16) {
                     client.deleteTable(tableName);
                     sb.append("Deleted the table").append(System.lineSeparator());
                 }
             } catch (Exception e) {
                 sb.append(convertExceptionMessage(e));
-            } finally {
-                try {
-                    client.shutdown();
-                } catch (Exception e) {
-                    sb.append(convertExceptionMessage(e));
-                }
             }
         }
         return sb.toString();
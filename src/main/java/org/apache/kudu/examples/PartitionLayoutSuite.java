@@ -0,0 +1,269 @@
+package org.apache.kudu.examples;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.CreateTableOptions;
+import org.apache.kudu.client.Insert;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduPredicate;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduSession;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.client.SessionConfiguration;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.LatencyReport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the same wide item table under several partition layouts, loads
+ * identical data into each, runs identical lookup, scan and ingest workloads
+ * and reports the results side by side. A layout is a '+' separated list of
+ * levels, and the layouts are separated by ',':
+ * <pre>
+ *   hash:N     N hash buckets on item_id (the first hash level) or on
+ *              price_update_time (the second hash level)
+ *   range:M    M range partitions on price_update_time
+ * </pre>
+ * e.g. "hash:512", "hash:8+range:4" or "hash:8+hash:4".
+ */
+public class PartitionLayoutSuite {
+    public static final String DEFAULT_LAYOUTS = "hash:8,hash:32,hash:8+range:4,hash:8+hash:4";
+    public static final long BASE_ITEM_ID = 114419336369L;
+    // 2021-01-01 00:00:00 UTC, the price updates are spread over 30 days
+    public static final long TIME_BASE_US = 1609459200000000L;
+    public static final long TIME_SPAN_US = TimeUnit.DAYS.toMicros(30);
+    public static final long SCAN_WINDOW_US = TIME_SPAN_US / 100;
+
+    private final KuduClient client;
+    private final int rows;
+    private final int fillerColumns;
+    private final int lookups;
+    private final int scans;
+    private final String keyDistribution;
+
+    public static class Result {
+        public String layout;
+        public int tablets;
+        public long rows;
+        public long ingestMs;
+        public final Histogram lookup = LatencyReport.newHistogram();
+        public long lookupMs;
+        public long found;
+        public final Histogram scan = LatencyReport.newHistogram();
+        public long scanMs;
+        public long scannedRows;
+    }
+
+    public PartitionLayoutSuite(KuduClient client,
+                                int rows,
+                                int fillerColumns,
+                                int lookups,
+                                int scans,
+                                String keyDistribution) {
+        this.client = client;
+        this.rows = rows;
+        this.fillerColumns = fillerColumns;
+        this.lookups = lookups;
+        this.scans = scans;
+        this.keyDistribution = keyDistribution;
+    }
+
+    /**
+     * item_id and price_update_time form the key so that both can be
+     * partitioned on, followed by curnt_price and the filler columns.
+     */
+    static Schema wideSchema(int fillerColumns) {
+        List<ColumnSchema> columns = new ArrayList<>(fillerColumns + 3);
+        columns.add(new ColumnSchema.ColumnSchemaBuilder("item_id", Type.INT64).key(true).build());
+        columns.add(new ColumnSchema.ColumnSchemaBuilder("price_update_time", Type.UNIXTIME_MICROS).key(true).build());
+        columns.add(new ColumnSchema.ColumnSchemaBuilder("curnt_price", Type.DOUBLE).nullable(true).build());
+        for (int j = 0; j < fillerColumns; j++) {
+            columns.add(new ColumnSchema.ColumnSchemaBuilder("c" + j, fillerType(j)).nullable(j % 3 != 1).build());
+        }
+        return new Schema(columns);
+    }
+
+    static Type fillerType(int j) {
+        switch (j % 3) {
+            case 0:
+                return Type.DOUBLE;
+            case 1:
+                return Type.INT64;
+            default:
+                return Type.STRING;
+        }
+    }
+
+    static CreateTableOptions layoutOptions(Schema schema, String layout) {
+        CreateTableOptions cto = new CreateTableOptions();
+        boolean firstHash = true;
+        for (String level : layout.split("\\+")) {
+            String[] parts = level.trim().split(":");
+            int n = Integer.parseInt(parts[1]);
+            if (parts[0].equals("hash")) {
+                cto.addHashPartitions(Collections.singletonList(firstHash ? "item_id" : "price_update_time"), n);
+                firstHash = false;
+            } else if (parts[0].equals("range")) {
+                cto.setRangePartitionColumns(Collections.singletonList("price_update_time"));
+                // the first and the last range are unbounded
+                for (int r = 0; r < n; r++) {
+                    PartialRow lower = schema.newPartialRow();
+                    PartialRow upper = schema.newPartialRow();
+                    if (r > 0) {
+                        lower.addLong("price_update_time", TIME_BASE_US + TIME_SPAN_US / n * r);
+                    }
+                    if (r < n - 1) {
+                        upper.addLong("price_update_time", TIME_BASE_US + TIME_SPAN_US / n * (r + 1));
+                    }
+                    cto.addRangePartition(lower, upper);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown partition level " + level + " in layout " + layout);
+            }
+        }
+        return cto;
+    }
+
+    static long updateTime(long idx, int rows) {
+        return TIME_BASE_US + (idx * 7919 % rows) * (TIME_SPAN_US / rows);
+    }
+
+    /**
+     * Load the identical rows into every layout.
+     */
+    private void load(KuduTable table) throws KuduException {
+        KuduSession session = client.newSession();
+        session.setFlushMode(SessionConfiguration.FlushMode.AUTO_FLUSH_BACKGROUND);
+        for (int i = 0; i < rows; i++) {
+            long item = BASE_ITEM_ID + i;
+            Insert insert = table.newInsert();
+            PartialRow row = insert.getRow();
+            row.addLong("item_id", item);
+            row.addLong("price_update_time", updateTime(i, rows));
+            row.addDouble("curnt_price", (item % 10000) / 100.0);
+            for (int j = 0; j < fillerColumns; j++) {
+                String name = "c" + j;
+                if (j % 3 != 1 && i % 10 == 0) {
+                    row.setNull(name);
+                    continue;
+                }
+                switch (j % 3) {
+                    case 0:
+                        row.addDouble(name, item * 0.01 + j);
+                        break;
+                    case 1:
+                        row.addLong(name, item + j);
+                        break;
+                    default:
+                        row.addString(name, "value " + (item % 1000));
+                        break;
+                }
+            }
+            session.apply(insert);
+        }
+        session.close();
+        if (session.countPendingErrors() != 0) {
+            throw new RuntimeException("error loading rows to " + table.getName() + ", the first one is " +
+                    session.getPendingErrors().getRowErrors()[0]);
+        }
+    }
+
+    public Result run(String layout, String tableName) throws Exception {
+        Schema schema = wideSchema(fillerColumns);
+        Result result = new Result();
+        result.layout = layout;
+        KuduTable table = client.createTable(tableName, schema, layoutOptions(schema, layout));
+        try {
+            result.tablets = table.getTabletsLocations(client.getDefaultAdminOperationTimeoutMs()).size();
+
+            long start = System.currentTimeMillis();
+            load(table);
+            result.rows = rows;
+            result.ingestMs = System.currentTimeMillis() - start;
+
+            List<String> priceColumn = Collections.singletonList("curnt_price");
+            KeyGenerator keys = new KeyGenerators(keyDistribution, rows).forThread(0, 1);
+            start = System.currentTimeMillis();
+            for (int i = 0; i < lookups; i++) {
+                long item = BASE_ITEM_ID + keys.nextKey();
+                long begin = System.nanoTime();
+                if (ScanItemTable.lookupPrice(client, table, priceColumn, item) != -1) {
+                    result.found++;
+                }
+                result.lookup.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+            }
+            result.lookupMs = System.currentTimeMillis() - start;
+
+            List<String> scanColumns = new ArrayList<>(2);
+            scanColumns.add("item_id");
+            scanColumns.add("curnt_price");
+            keys = new KeyGenerators(keyDistribution, rows).forThread(0, 1);
+            start = System.currentTimeMillis();
+            for (int i = 0; i < scans; i++) {
+                long lower = updateTime(keys.nextKey(), rows);
+                long begin = System.nanoTime();
+                KuduScanner scanner = client.newScannerBuilder(table)
+                        .setProjectedColumnNames(scanColumns)
+                        .addPredicate(KuduPredicate.newComparisonPredicate(schema.getColumn("price_update_time"),
+                                KuduPredicate.ComparisonOp.GREATER_EQUAL, lower))
+                        .addPredicate(KuduPredicate.newComparisonPredicate(schema.getColumn("price_update_time"),
+                                KuduPredicate.ComparisonOp.LESS, lower + SCAN_WINDOW_US))
+                        .build();
+                while (scanner.hasMoreRows()) {
+                    result.scannedRows += scanner.nextRows().getNumRows();
+                }
+                result.scan.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+            }
+            result.scanMs = System.currentTimeMillis() - start;
+        } finally {
+            client.deleteTable(tableName);
+        }
+        return result;
+    }
+
+    public List<Result> runAll(String layouts, String tablePrefix) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (String layout : layouts.split(",")) {
+            String tableName = tablePrefix + "_" + layout.trim().replaceAll("[^a-zA-Z0-9]", "_");
+            System.out.println("Running layout " + layout.trim() + " on table " + tableName);
+            results.add(run(layout.trim(), tableName));
+        }
+        return results;
+    }
+
+    public static String format(List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-20s %7s | %11s | %10s %10s %10s %9s | %10s %10s %12s",
+                "layout", "tablets", "ingest_rps", "lookup_qps", "p50", "p99", "found",
+                "scan_p50", "scan_p99", "rows/scan")).append(System.lineSeparator());
+        for (Result r : results) {
+            long scanCount = r.scan.getTotalCount();
+            sb.append(String.format("%-20s %7d | %11.1f | %10.1f %8dus %8dus %9d | %8dus %8dus %12.1f",
+                    r.layout, r.tablets,
+                    LatencyReport.qps(r.rows, r.ingestMs),
+                    LatencyReport.qps(r.lookup.getTotalCount(), r.lookupMs),
+                    r.lookup.getValueAtPercentile(50), r.lookup.getValueAtPercentile(99), r.found,
+                    r.scan.getValueAtPercentile(50), r.scan.getValueAtPercentile(99),
+                    scanCount == 0 ? 0 : r.scannedRows / (double) scanCount)).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    public static void runSuite(KuduClient client, ExampleArguments eArgParser) throws Exception {
+        String prefix = eArgParser.tableName == null ?
+                "layout_suite-" + System.currentTimeMillis() : eArgParser.tableName;
+        String layouts = eArgParser.layouts == null ? DEFAULT_LAYOUTS : eArgParser.layouts;
+        PartitionLayoutSuite suite = new PartitionLayoutSuite(client, eArgParser.rows, eArgParser.columns,
+                eArgParser.lookups, eArgParser.scans, eArgParser.keyDistribution);
+        System.out.println(format(suite.runAll(layouts, prefix)));
+    }
+}
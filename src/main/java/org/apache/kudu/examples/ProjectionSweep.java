@@ -0,0 +1,321 @@
+package org.apache.kudu.examples;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduPredicate;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResult;
+import org.apache.kudu.client.RowResultIterator;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.examples.metrics.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps the projection width of point lookups and range scans on a wide
+ * table. The non-key columns are grouped by kind: non-nullable fixed-width,
+ * nullable fixed-width, strings/binaries, and all columns in schema order.
+ * For every kind and width it reports the latency, the decoded bytes per row
+ * (roughly what crosses the wire), the bytes the tablet servers read and the
+ * client time spent decoding the projected values. The key column is always
+ * projected on top of the width. Lookups projecting every column warm up
+ * first, so the first width measured doesn't pay for the cold start.
+ */
+public class ProjectionSweep {
+    public static final String DEFAULT_WIDTHS = "1,5,20,all";
+    public static final String KEY_COLUMN = "item_id";
+
+    private final KuduClient client;
+    private final KuduTable table;
+    private final Schema schema;
+    // sink for the decoded values so that the JIT can't drop the decoding
+    private long sink;
+
+    public ProjectionSweep(KuduClient client, KuduTable table) {
+        this.client = client;
+        this.table = table;
+        this.schema = table.getSchema();
+    }
+
+    private static class Stats {
+        final Histogram latency = LatencyReport.newHistogram();
+        long rows;
+        long decodedBytes;
+        long decodeNanos;
+        long serverBytesRead;
+        long elapsedNanos;
+
+        double bytesPerRow() {
+            return rows == 0 ? 0 : decodedBytes / (double) rows;
+        }
+
+        double decodeNanosPerRow() {
+            return rows == 0 ? 0 : decodeNanos / (double) rows;
+        }
+    }
+
+    static boolean isVarLen(Type type) {
+        return type == Type.STRING || type == Type.BINARY || type == Type.VARCHAR;
+    }
+
+    Map<String, List<String>> columnsByKind() {
+        Map<String, List<String>> kinds = new LinkedHashMap<>();
+        kinds.put("fixed", new ArrayList<>());
+        kinds.put("nullable", new ArrayList<>());
+        kinds.put("string", new ArrayList<>());
+        kinds.put("mixed", new ArrayList<>());
+        for (ColumnSchema column : schema.getColumns()) {
+            if (column.isKey()) {
+                continue;
+            }
+            String kind = isVarLen(column.getType()) ? "string" : (column.isNullable() ? "nullable" : "fixed");
+            kinds.get(kind).add(column.getName());
+            kinds.get("mixed").add(column.getName());
+        }
+        return kinds;
+    }
+
+    /**
+     * The UTF-8 length of a string, as it crosses the wire, without encoding it.
+     */
+    static int utf8Length(String value) {
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // unpaired, encoded as '?'
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Read every projected value like a client would, returns the decoded bytes.
+     */
+    private long decode(RowResult row, Schema projection) {
+        long bytes = 0;
+        for (int i = 0; i < projection.getColumnCount(); i++) {
+            ColumnSchema column = projection.getColumnByIndex(i);
+            if (column.isNullable() && row.isNull(i)) {
+                continue;
+            }
+            Type type = column.getType();
+            switch (type) {
+                case BOOL:
+                    sink += row.getBoolean(i) ? 1 : 0;
+                    break;
+                case INT8:
+                    sink += row.getByte(i);
+                    break;
+                case INT16:
+                    sink += row.getShort(i);
+                    break;
+                case INT32:
+                case DATE:
+                    sink += row.getInt(i);
+                    break;
+                case INT64:
+                case UNIXTIME_MICROS:
+                    sink += row.getLong(i);
+                    break;
+                case FLOAT:
+                    sink += (long) row.getFloat(i);
+                    break;
+                case DOUBLE:
+                    sink += (long) row.getDouble(i);
+                    break;
+                case BINARY:
+                    bytes += row.getBinary(i).remaining();
+                    break;
+                case STRING:
+                    bytes += utf8Length(row.getString(i));
+                    break;
+                case VARCHAR:
+                    bytes += utf8Length(row.getVarchar(i));
+                    break;
+                default:
+                    sink += row.getObject(i).hashCode();
+                    break;
+            }
+            if (!isVarLen(type)) {
+                bytes += type.getSize(column.getTypeAttributes());
+            }
+        }
+        return bytes;
+    }
+
+    private void drain(KuduScanner scanner, Stats stats) throws KuduException {
+        Schema projection = scanner.getProjectionSchema();
+        while (scanner.hasMoreRows()) {
+            RowResultIterator results = scanner.nextRows();
+            long start = System.nanoTime();
+            while (results.hasNext()) {
+                stats.decodedBytes += decode(results.next(), projection);
+                stats.rows++;
+            }
+            stats.decodeNanos += System.nanoTime() - start;
+        }
+        stats.serverBytesRead += scanner.getResourceMetrics().getMetric("bytes_read");
+    }
+
+    private long timedLookup(List<String> columns, long item, Stats stats) throws KuduException {
+        long start = System.nanoTime();
+        KuduScanner scanner = client.newScannerBuilder(table)
+                .setProjectedColumnNames(columns)
+                .cacheBlocks(false)
+                .addPredicate(KuduPredicate.newComparisonPredicate(
+                        schema.getColumn(KEY_COLUMN), KuduPredicate.ComparisonOp.EQUAL, item))
+                .build();
+        drain(scanner, stats);
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    Stats lookups(List<String> columns, long[] itemIds, int iteration) throws KuduException {
+        Stats stats = new Stats();
+        long begin = System.nanoTime();
+        for (int i = 0; i < iteration; i++) {
+            for (long item : itemIds) {
+                stats.latency.recordValue(timedLookup(columns, item, stats));
+            }
+        }
+        stats.elapsedNanos = System.nanoTime() - begin;
+        return stats;
+    }
+
+    /**
+     * Look up the ids in a loop with every column projected until the warmup
+     * is done, which also decodes every column type once.
+     */
+    void warmup(Warmup warmup, long[] itemIds) throws KuduException {
+        List<String> columns = new ArrayList<>();
+        columns.add(KEY_COLUMN);
+        columns.addAll(columnsByKind().get("mixed"));
+        Stats ignored = new Stats();
+        int next = 0;
+        warmup.recordCold(timedLookup(columns, itemIds[next++ % itemIds.length], ignored));
+        warmup.start();
+        while (!warmup.isDone()) {
+            warmup.record(timedLookup(columns, itemIds[next++ % itemIds.length], ignored));
+        }
+        System.out.println(warmup.report());
+    }
+
+    /**
+     * Scan up to rangeRows rows between the smallest and the largest item id.
+     */
+    Stats rangeScan(List<String> columns, long lower, long upper, long rangeRows) throws KuduException {
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        KuduScanner scanner = client.newScannerBuilder(table)
+                .setProjectedColumnNames(columns)
+                .cacheBlocks(false)
+                .addPredicate(KuduPredicate.newComparisonPredicate(
+                        schema.getColumn(KEY_COLUMN), KuduPredicate.ComparisonOp.GREATER_EQUAL, lower))
+                .addPredicate(KuduPredicate.newComparisonPredicate(
+                        schema.getColumn(KEY_COLUMN), KuduPredicate.ComparisonOp.LESS_EQUAL, upper))
+                .limit(rangeRows)
+                .build();
+        drain(scanner, stats);
+        stats.elapsedNanos = System.nanoTime() - start;
+        stats.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(stats.elapsedNanos));
+        return stats;
+    }
+
+    /**
+     * The distinct widths of a list such as "1,5,20,all", capped at max.
+     */
+    static List<Integer> parseWidths(String widths, int max) {
+        List<Integer> result = new ArrayList<>();
+        for (String w : widths.split(",", -1)) {
+            int width;
+            if (w.trim().equalsIgnoreCase("all")) {
+                width = max;
+            } else {
+                try {
+                    width = Integer.parseInt(w.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("invalid width '" + w.trim() + "' in " + widths);
+                }
+                if (width < 1) {
+                    throw new IllegalArgumentException("width " + width + " in " + widths + " is below 1");
+                }
+            }
+            width = Math.min(max, width);
+            if (width > 0 && !result.contains(width)) {
+                result.add(width);
+            }
+        }
+        return result;
+    }
+
+    public void run(long[] itemIds, int iteration, String widths, long rangeRows, Warmup warmup)
+            throws KuduException {
+        warmup(warmup, itemIds);
+        long[] sorted = itemIds.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format("%-9s %9s | %9s %9s %10s %10s %12s | %8s %9s %9s %10s %10s %12s",
+                "kind", "width+key", "lookup_p50", "p99", "bytes/row", "decode_ns", "server_bytes",
+                "rows", "scan_ms", "MB/s", "bytes/row", "decode_ns", "server_bytes"));
+        for (Map.Entry<String, List<String>> kind : columnsByKind().entrySet()) {
+            List<String> candidates = kind.getValue();
+            for (int width : parseWidths(widths, candidates.size())) {
+                List<String> columns = new ArrayList<>(width + 1);
+                columns.add(KEY_COLUMN);
+                columns.addAll(candidates.subList(0, width));
+                Stats lookup = lookups(columns, itemIds, iteration);
+                Stats scan = rangeScan(columns, sorted[0], sorted[sorted.length - 1], rangeRows);
+                double scanSec = scan.elapsedNanos / 1e9;
+                System.out.println(String.format("%-9s %9s | %8dus %7dus %10.1f %10.1f %12d | %8d %9.1f %9.2f %10.1f %10.1f %12d",
+                        kind.getKey(), width + "+1",
+                        lookup.latency.getValueAtPercentile(50), lookup.latency.getValueAtPercentile(99),
+                        lookup.bytesPerRow(), lookup.decodeNanosPerRow(), lookup.serverBytesRead,
+                        scan.rows, scan.elapsedNanos / 1e6,
+                        scanSec == 0 ? 0 : scan.decodedBytes / scanSec / (1024 * 1024),
+                        scan.bytesPerRow(), scan.decodeNanosPerRow(), scan.serverBytesRead));
+            }
+        }
+    }
+
+    public static void sweep(KuduClient client,
+                             String itemIdFile,
+                             String tableName,
+                             int iteration,
+                             String widths,
+                             long rangeRows,
+                             Warmup warmup) {
+        System.out.println("item id file: " + itemIdFile);
+        System.out.println("kudu table: " + tableName);
+        System.out.println("iteration: " + iteration + ", widths: " + widths + ", range rows: " + rangeRows);
+        try {
+            long[] itemIds = ScanItemTable.toArray(ScanItemTable.readFileLines(itemIdFile));
+            if (itemIds.length == 0) {
+                System.out.println("No item ID to scan in " + itemIdFile);
+                return;
+            }
+            new ProjectionSweep(client, client.openTable(tableName)).run(itemIds, iteration, widths, rangeRows, warmup);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package org.apache.kudu.examples;
+
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduScanToken;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResult;
+import org.apache.kudu.client.RowResultIterator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a full table scan into local binary columnar files, one file per
+ * scan token, written by a pool of workers. Every worker owns one direct
+ * buffer per column (and one per nullable column for its null flags) cut
+ * from its buffer budget, so the memory is bounded by workers x the budget.
+ * Rows are appended column by column and a block is written with a single
+ * gathering write whenever a buffer could overflow on the next row. The layout, all
+ * little endian:
+ * <pre>
+ *   file   := "KCOL" int:version int:columns column* block*
+ *   column := int:nameLength name int:typeLength type byte:nullable
+ *   block  := int:rows (int:nullBytes int:valueBytes)* per column, then the
+ *             null flags (one byte per row) and the values of every column
+ *   value  := fixed width primitive, or int:length bytes for strings,
+ *             binaries and decimals (as text)
+ * </pre>
+ * The time spent waiting for Kudu, decoding into the buffers and writing to
+ * disk is measured separately to show which one is the bottleneck.
+ */
+public class ScanExporter {
+    public static final int MAGIC = 0x4C4F434B; // "KCOL" in little endian
+    public static final int VERSION = 1;
+    public static final int DEFAULT_BUFFER_BYTES = 16 * 1024 * 1024;
+    // Kudu cells are at most 64KB by default, plus the length prefix
+    static final int MAX_CELL_BYTES = 64 * 1024 + 4;
+
+    private final KuduClient client;
+    private final KuduTable table;
+    private final int threads;
+    // the share of the budget of every column, its null flags included
+    private final int columnBufferBytes;
+    // the buffer memory a worker took and the number of workers, known once they ran
+    private long writerBytes;
+    int writerCount;
+
+    public static class Stats {
+        public long rows;
+        public long bytes;
+        public long blocks;
+        public long kuduNanos;
+        public long decodeNanos;
+        public long diskNanos;
+
+        void add(Stats other) {
+            rows += other.rows;
+            bytes += other.bytes;
+            blocks += other.blocks;
+            kuduNanos += other.kuduNanos;
+            decodeNanos += other.decodeNanos;
+            diskNanos += other.diskNanos;
+        }
+    }
+
+    /**
+     * @param bufferBytes the buffer memory of one worker, split over the columns
+     */
+    public ScanExporter(KuduClient client, KuduTable table, int threads, int bufferBytes) {
+        this.client = client;
+        this.table = table;
+        this.threads = Math.max(1, threads);
+        Schema schema = table.getSchema();
+        int columns = Math.max(1, schema.getColumnCount());
+        int widestCell = 1;
+        for (ColumnSchema column : schema.getColumns()) {
+            widestCell = Math.max(widestCell, cellBytes(column));
+        }
+        // the block header comes out of the budget, then one row of the widest
+        // column and its null flag must fit in every share
+        int headerBytes = 4 + 8 * columns;
+        int minColumnBytes = widestCell + widestCell / 8 + 2;
+        if ((bufferBytes - headerBytes) / columns < minColumnBytes) {
+            throw new IllegalArgumentException(String.format(
+                    "an export buffer of %d bytes can't hold a row of the %d columns of %s, at least %d bytes are needed",
+                    bufferBytes, columns, table.getName(), (long) minColumnBytes * columns + headerBytes));
+        }
+        this.columnBufferBytes = (bufferBytes - headerBytes) / columns;
+    }
+
+    /**
+     * The most bytes a cell of the column takes in a value buffer.
+     */
+    static int cellBytes(ColumnSchema column) {
+        switch (column.getType()) {
+            case BOOL:
+            case INT8:
+                return 1;
+            case INT16:
+                return 2;
+            case INT32:
+            case DATE:
+            case FLOAT:
+                return 4;
+            case INT64:
+            case UNIXTIME_MICROS:
+            case DOUBLE:
+                return 8;
+            default:
+                return MAX_CELL_BYTES;
+        }
+    }
+
+    /**
+     * The per-worker column buffers and the file being written.
+     */
+    private class ColumnWriter {
+        final Schema schema = table.getSchema();
+        final int columns = schema.getColumnCount();
+        final ByteBuffer header = newBuffer(4 + 8 * columns);
+        final ByteBuffer[] values = new ByteBuffer[columns];
+        final ByteBuffer[] nulls = new ByteBuffer[columns];
+        final int[] cellBytes = new int[columns];
+        // header, then the null flags and the values of every column
+        final ByteBuffer[] block = new ByteBuffer[1 + 2 * columns];
+        final Stats stats = new Stats();
+        FileChannel channel;
+        int rows;
+
+        ColumnWriter() {
+            for (int i = 0; i < columns; i++) {
+                ColumnSchema column = schema.getColumnByIndex(i);
+                cellBytes[i] = cellBytes(column);
+                // a null flag per value, which takes at least its fixed width or its length
+                // prefix, non-nullable columns keep an empty buffer to keep the block layout fixed
+                int minCell = cellBytes[i] == MAX_CELL_BYTES ? 4 : cellBytes[i];
+                int nullBytes = column.isNullable() ? Math.max(1, columnBufferBytes / (minCell + 1)) : 0;
+                nulls[i] = newBuffer(Math.min(nullBytes, columnBufferBytes - cellBytes[i]));
+                values[i] = newBuffer(columnBufferBytes - nulls[i].capacity());
+            }
+        }
+
+        long capacity() {
+            long bytes = header.capacity();
+            for (int i = 0; i < columns; i++) {
+                bytes += values[i].capacity() + nulls[i].capacity();
+            }
+            return bytes;
+        }
+
+        void open(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            List<byte[]> names = new ArrayList<>(columns * 2);
+            int size = 12;
+            for (ColumnSchema column : schema.getColumns()) {
+                byte[] name = column.getName().getBytes(StandardCharsets.UTF_8);
+                byte[] type = column.getType().getName().getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                names.add(type);
+                size += 4 + name.length + 4 + type.length + 1;
+            }
+            ByteBuffer fileHeader = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            fileHeader.putInt(MAGIC).putInt(VERSION).putInt(columns);
+            for (int i = 0; i < columns; i++) {
+                fileHeader.putInt(names.get(2 * i).length).put(names.get(2 * i));
+                fileHeader.putInt(names.get(2 * i + 1).length).put(names.get(2 * i + 1));
+                fileHeader.put((byte) (schema.getColumnByIndex(i).isNullable() ? 1 : 0));
+            }
+            fileHeader.flip();
+            write(new ByteBuffer[]{fileHeader});
+        }
+
+        boolean isFull() {
+            for (int i = 0; i < columns; i++) {
+                if (values[i].remaining() < cellBytes[i] || (nulls[i].capacity() > 0 && !nulls[i].hasRemaining())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void append(RowResult row) {
+            for (int i = 0; i < columns; i++) {
+                ByteBuffer out = values[i];
+                boolean isNull = nulls[i].capacity() > 0 && row.isNull(i);
+                if (nulls[i].capacity() > 0) {
+                    nulls[i].put((byte) (isNull ? 1 : 0));
+                }
+                switch (schema.getColumnByIndex(i).getType()) {
+                    case BOOL:
+                        out.put((byte) (!isNull && row.getBoolean(i) ? 1 : 0));
+                        break;
+                    case INT8:
+                        out.put(isNull ? 0 : row.getByte(i));
+                        break;
+                    case INT16:
+                        out.putShort(isNull ? 0 : row.getShort(i));
+                        break;
+                    case INT32:
+                    case DATE:
+                        out.putInt(isNull ? 0 : row.getInt(i));
+                        break;
+                    case INT64:
+                    case UNIXTIME_MICROS:
+                        out.putLong(isNull ? 0 : row.getLong(i));
+                        break;
+                    case FLOAT:
+                        out.putFloat(isNull ? 0 : row.getFloat(i));
+                        break;
+                    case DOUBLE:
+                        out.putDouble(isNull ? 0 : row.getDouble(i));
+                        break;
+                    case BINARY:
+                        if (isNull) {
+                            out.putInt(0);
+                        } else {
+                            ByteBuffer binary = row.getBinary(i);
+                            out.putInt(binary.remaining()).put(binary);
+                        }
+                        break;
+                    case STRING:
+                        putUtf8(out, isNull ? null : row.getString(i));
+                        break;
+                    case VARCHAR:
+                        putUtf8(out, isNull ? null : row.getVarchar(i));
+                        break;
+                    default:
+                        putUtf8(out, isNull ? null : row.getObject(i).toString());
+                        break;
+                }
+            }
+            rows++;
+        }
+
+        void flushBlock() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            header.clear();
+            header.putInt(rows);
+            for (int i = 0; i < columns; i++) {
+                nulls[i].flip();
+                values[i].flip();
+                header.putInt(nulls[i].remaining()).putInt(values[i].remaining());
+                block[1 + 2 * i] = nulls[i];
+                block[2 + 2 * i] = values[i];
+            }
+            header.flip();
+            block[0] = header;
+            write(block);
+            for (int i = 0; i < columns; i++) {
+                nulls[i].clear();
+                values[i].clear();
+            }
+            stats.rows += rows;
+            stats.blocks++;
+            rows = 0;
+        }
+
+        private void write(ByteBuffer[] buffers) throws IOException {
+            long start = System.nanoTime();
+            long remaining = 0;
+            for (ByteBuffer b : buffers) {
+                remaining += b.remaining();
+            }
+            stats.bytes += remaining;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            stats.diskNanos += System.nanoTime() - start;
+        }
+
+        void close() throws IOException {
+            flushBlock();
+            long start = System.nanoTime();
+            channel.close();
+            stats.diskNanos += System.nanoTime() - start;
+        }
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Encode the string as length-prefixed UTF-8 straight into the buffer,
+     * without the byte[] of String.getBytes. As there, an unpaired surrogate
+     * becomes '?'.
+     */
+    static void putUtf8(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(0);
+            return;
+        }
+        int lengthAt = out.position();
+        out.putInt(0);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    out.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                            .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+                } else {
+                    out.put((byte) '?');
+                }
+            } else {
+                out.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        out.putInt(lengthAt, out.position() - lengthAt - 4);
+    }
+
+    private void exportToken(ColumnWriter writer, KuduScanToken token, Path file) throws Exception {
+        writer.open(file);
+        try {
+            KuduScanner scanner = token.intoScanner(client);
+            scanner.setReuseRowResult(true);
+            long start = System.nanoTime();
+            while (scanner.hasMoreRows()) {
+                RowResultIterator results = scanner.nextRows();
+                long decode = System.nanoTime();
+                writer.stats.kuduNanos += decode - start;
+                long disk = writer.stats.diskNanos;
+                while (results.hasNext()) {
+                    if (writer.isFull()) {
+                        writer.flushBlock();
+                    }
+                    writer.append(results.next());
+                }
+                start = System.nanoTime();
+                // the blocks flushed in between are disk time, not decode time
+                writer.stats.decodeNanos += start - decode - (writer.stats.diskNanos - disk);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public Stats export(String dir) throws Exception {
+        Path root = Files.createDirectories(Paths.get(dir));
+        List<KuduScanToken> tokens = client.newScanTokenBuilder(table).cacheBlocks(false).build();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, tokens.size())));
+        // the buffers are reused across the tokens a worker exports
+        List<ColumnWriter> allWriters = new ArrayList<>();
+        ThreadLocal<ColumnWriter> writers = ThreadLocal.withInitial(() -> {
+            ColumnWriter writer = new ColumnWriter();
+            synchronized (allWriters) {
+                allWriters.add(writer);
+            }
+            return writer;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                final KuduScanToken token = tokens.get(i);
+                final Path file = root.resolve(String.format("%s-%05d.kcol", table.getName(), i));
+                futures.add(pool.submit(() -> {
+                    exportToken(writers.get(), token, file);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Stats total = new Stats();
+        for (ColumnWriter writer : allWriters) {
+            total.add(writer.stats);
+            writerBytes = writer.capacity();
+        }
+        writerCount = allWriters.size();
+        return total;
+    }
+
+    public static String export(KuduClient client, String tableName, String dir, int threads, int bufferBytes)
+            throws Exception {
+        KuduTable table = client.openTable(tableName);
+        ScanExporter exporter = new ScanExporter(client, table, threads, bufferBytes);
+        long start = System.nanoTime();
+        Stats stats = exporter.export(dir);
+        double sec = (System.nanoTime() - start) / 1e9;
+        // the worker times overlap, so they are reported as shares of their sum
+        double busy = Math.max(1, stats.kuduNanos + stats.decodeNanos + stats.diskNanos);
+        return String.format("Exported %d rows of %s to %s: %d blocks, %.1f MB in %.2f s, %.1f MB/s, " +
+                        "%d workers with %d buffer bytes each (%d in total, %d per column), " +
+                        "time in kudu %.1f%% decode %.1f%% disk %.1f%%",
+                stats.rows, tableName, dir, stats.blocks, stats.bytes / 1048576.0, sec,
+                sec == 0 ? 0 : stats.bytes / 1048576.0 / sec,
+                exporter.writerCount, exporter.writerBytes, exporter.writerBytes * exporter.writerCount,
+                exporter.columnBufferBytes,
+                stats.kuduNanos * 100 / busy, stats.decodeNanos * 100 / busy, stats.diskNanos * 100 / busy)
+                + System.lineSeparator() + String.format("worker time: kudu %d ms, decode %d ms, disk %d ms",
+                TimeUnit.NANOSECONDS.toMillis(stats.kuduNanos), TimeUnit.NANOSECONDS.toMillis(stats.decodeNanos),
+                TimeUnit.NANOSECONDS.toMillis(stats.diskNanos)) + System.lineSeparator();
+    }
+}
@@ -1,14 +1,23 @@
 package org.apache.kudu.examples;
 
+import org.HdrHistogram.Histogram;
 import org.apache.kudu.Schema;
 import org.apache.kudu.client.*;
 import org.apache.commons.lang3.time.*;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.AllocationTracker;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.examples.metrics.Warmup;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class ScanItemTable {
     public static List<Long> readFileLines(String fileName) {
@@ -35,15 +44,88 @@ public class ScanItemTable {
         return lines;
     }
 
-    public static void scanItems(String itemIdFile,
-                                 String kuduMasters,
+    public static long[] toArray(List<Long> items) {
+        long[] arr = new long[items.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = items.get(i);
+        }
+        return arr;
+    }
+
+    /**
+     * Run "select curnt_price from table where item_id = ?" and return the
+     * price, or -1 if the item doesn't exist.
+     */
+    public static double lookupPrice(KuduClient client,
+                                     KuduTable kuduTable,
+                                     List<String> projectColumns,
+                                     long item) throws KuduException {
+        return lookupPrice(client, kuduTable, projectColumns, item, null);
+    }
+
+    /**
+     * The same lookup with the scanner settings applied, if any.
+     */
+    public static double lookupPrice(KuduClient client,
+                                     KuduTable kuduTable,
+                                     List<String> projectColumns,
+                                     long item,
+                                     ClientSettings settings) throws KuduException {
+        KuduPredicate predicate = KuduPredicate.newComparisonPredicate(
+                kuduTable.getSchema().getColumn("item_id"),
+                KuduPredicate.ComparisonOp.EQUAL,
+                item);
+        KuduScanner.KuduScannerBuilder builder = client.newScannerBuilder(kuduTable)
+                .setProjectedColumnNames(projectColumns)
+                .cacheBlocks(false)
+                .addPredicate(predicate);
+        if (settings != null) {
+            settings.apply(builder);
+        }
+        KuduScanner scanner = builder.build();
+        double res = -1;
+        while (scanner.hasMoreRows()) {
+            RowResultIterator results = scanner.nextRows();
+            while (results.hasNext()) {
+                RowResult result = results.next();
+                res = result.getDouble("curnt_price");
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Look up an item, remember its price and return the latency in microseconds.
+     */
+    private static long timedLookup(KuduClient client,
+                                    KuduTable kuduTable,
+                                    List<String> projectColumns,
+                                    long item,
+                                    Map<Long, Double> prices,
+                                    ClientSettings settings) {
+        long start = System.nanoTime();
+        try {
+            double res = lookupPrice(client, kuduTable, projectColumns, item, settings);
+            if (res != -1) {
+                prices.put(item, res);
+            }
+        } catch (KuduException ke) {
+            ke.printStackTrace();
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    public static void scanItems(KuduClient client,
+                                 String itemIdFile,
                                  String tableName,
-                                 int iteration) {
+                                 int iteration,
+                                 String keyDistribution,
+                                 Warmup warmup,
+                                 ClientSettings settings) {
         System.out.println("item id file: " + itemIdFile);
-        System.out.println("kudu masters: " + kuduMasters);
         System.out.println("kudu table: " + tableName);
         System.out.println("iteration: " + iteration);
-        KuduClient client = new KuduClient.KuduClientBuilder(kuduMasters).build();
+        System.out.println("key distribution: " + keyDistribution);
         try {
             // read all item ids
             List<Long> allItemIds = readFileLines(itemIdFile);
@@ -51,59 +133,48 @@ public class ScanItemTable {
                 System.out.println("No item ID to scan in " + itemIdFile);
                 return;
             }
+            long[] itemIds = toArray(allItemIds);
+            KeyGenerator keys = new KeyGenerators(keyDistribution, itemIds).forThread(0, 1);
             // create the table scanner
+            StopWatch openWatch = new StopWatch();
+            openWatch.start();
             KuduTable kuduTable = client.openTable(tableName);
+            openWatch.stop();
             Schema schema = kuduTable.getSchema();
-            System.out.println("Table '" + tableName + "' colums: " + schema.getColumnCount());
+            System.out.println("Table '" + tableName + "' colums: " + schema.getColumnCount() +
+                    ", opening it takes " + openWatch.getTime() + " ms");
 
             List<String> projectColumns = new ArrayList<>(1);
             projectColumns.add("curnt_price");
-            List<KuduScanner> scanners = new ArrayList<>(allItemIds.size());
-            for (Long item : allItemIds) {
-                KuduPredicate predicate = KuduPredicate.newComparisonPredicate(
-                        schema.getColumn("item_id"),
-                        KuduPredicate.ComparisonOp.EQUAL,
-                        item);
-                KuduScanner scanner = client.newScannerBuilder(kuduTable)
-                        .setProjectedColumnNames(projectColumns)
-                        .cacheBlocks(false)
-                        .addPredicate(predicate)
-                        .build();
-                scanners.add(scanner);
+            Map<Long, Double> prices = new LinkedHashMap<>(itemIds.length * 2);
+            for (long item : itemIds) {
+                prices.put(item, -1.0);
             }
-            List<Double> prices = new ArrayList<Double>(allItemIds.size());
-            for (int k = 0; k < scanners.size(); k++) {
-                prices.add(-1.0);
+            // the first lookup fills the table location cache and negotiates the connection
+            warmup.recordCold(timedLookup(client, kuduTable, projectColumns, keys.nextKey(), prices, settings));
+            warmup.start();
+            while (!warmup.isDone()) {
+                warmup.record(timedLookup(client, kuduTable, projectColumns, keys.nextKey(), prices, settings));
             }
-            // run the perf test
+            // run the perf test, every iteration looks up as many items as the file has
+            Histogram latency = LatencyReport.newHistogram();
+            AllocationTracker tracker = AllocationTracker.start();
             StopWatch watch = new StopWatch();
             watch.start();
             for (int i = 0; i < iteration; i++) {
-                for (int k = 0; k < scanners.size(); k++) {
-                    KuduScanner scanner = scanners.get(k);
-                    double res = -1;
-                    while (scanner.hasMoreRows()) {
-                        RowResultIterator results = null;
-                        try {
-                            results = scanner.nextRows();
-                            while (results.hasNext()) {
-                                RowResult result = results.next();
-                                res = result.getDouble("curnt_price");
-                            }
-                        } catch (KuduException ke) {
-                            ke.printStackTrace();
-                        }
-                    }
-                    if (res != -1) {
-                        prices.set(k, res);
-                    }
+                for (int k = 0; k < itemIds.length; k++) {
+                    latency.recordValue(timedLookup(client, kuduTable, projectColumns, keys.nextKey(), prices, settings));
                 }
             }
             watch.stop();
+            tracker.stop();
             System.out.println("Run " + iteration + " scans take " + watch.getTime() + " ms");
+            System.out.println(warmup.report());
+            System.out.println(LatencyReport.summarize("steady-state", latency, watch.getTime()));
+            System.out.println(tracker.report(latency.getTotalCount()));
             System.out.println("The SQL is like \"select curnt_price from " + tableName + " where item_id = ?\"");
-            for (int k = 0; k < scanners.size(); k++) {
-                System.out.println("item: " + allItemIds.get(k) + " price: " + prices.get(k));
+            for (Map.Entry<Long, Double> entry : prices.entrySet()) {
+                System.out.println("item: " + entry.getKey() + " price: " + entry.getValue());
             }
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -112,14 +183,6 @@ public class ScanItemTable {
     }
 
     public static void main(String args[]) {
-        ArgumentsParser parser = new ArgumentsParser();
-        if (!parser.parseArgs(args)) {
-            return;
-        }
-
-        scanItems(parser.itemsIdFile,
-                  parser.kuduMasters,
-                  parser.tableName,
-                  parser.iteration);
+        Benchmark.run(Benchmark.LOOKUP, args);
     }
 }
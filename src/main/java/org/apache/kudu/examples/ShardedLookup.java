@@ -0,0 +1,294 @@
+package org.apache.kudu.examples;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.examples.metrics.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Point lookups from several threads against one shared client and table,
+ * or against several clients with the threads spread round robin.
+ * The item ids are split into one contiguous shard per thread. A thread
+ * claims chunks of its own shard and, once it is exhausted, steals chunks
+ * from the other shards, so a thread stuck on slow lookups doesn't hold back
+ * the run. With a non-sequential key distribution the shards only split the
+ * amount of work and every thread draws its keys from its own generator.
+ * Every thread first warms up on its own shard, see {@link Warmup}.
+ */
+public class ShardedLookup {
+    public static final int DEFAULT_CHUNK = 16;
+
+    private final KuduClient[] clients;
+    private final KuduTable[] tables;
+    private final long[] itemIds;
+    private final KeyGenerators keyGenerators;
+    private final int threads;
+    private final int chunk;
+    private final Warmup warmup;
+    private final ClientSettings settings;
+    private final List<String> projectColumns = new ArrayList<>(1);
+
+    public ShardedLookup(KuduClient client,
+                         KuduTable table,
+                         long[] itemIds,
+                         KeyGenerators keyGenerators,
+                         int threads,
+                         int chunk,
+                         Warmup warmup) {
+        this(new KuduClient[]{client}, new KuduTable[]{table}, itemIds, keyGenerators, threads, chunk, warmup, null);
+    }
+
+    /**
+     * @param tables the table opened by each of the clients
+     * @param settings the scanner settings of the lookups, null for the defaults
+     */
+    public ShardedLookup(KuduClient[] clients,
+                         KuduTable[] tables,
+                         long[] itemIds,
+                         KeyGenerators keyGenerators,
+                         int threads,
+                         int chunk,
+                         Warmup warmup,
+                         ClientSettings settings) {
+        if (chunk < 1) {
+            throw new IllegalArgumentException("chunk must be at least 1, got " + chunk);
+        }
+        this.clients = clients;
+        this.tables = tables;
+        this.itemIds = itemIds;
+        this.keyGenerators = keyGenerators;
+        this.threads = threads;
+        this.chunk = chunk;
+        this.warmup = warmup;
+        this.settings = settings;
+        projectColumns.add("curnt_price");
+    }
+
+    static class Shard {
+        final int start;
+        final int len;
+        final long work;
+        final AtomicLong cursor = new AtomicLong();
+
+        Shard(int start, int len, int iterations) {
+            this.start = start;
+            this.len = len;
+            this.work = (long) len * iterations;
+        }
+
+        /**
+         * Claim the next chunk, returns its first position or -1 when the shard is done.
+         */
+        long claim(int chunk) {
+            long pos = cursor.getAndAdd(chunk);
+            return pos < work ? pos : -1;
+        }
+
+        /**
+         * The item id index of a position, every iteration goes over the shard once.
+         */
+        int index(long pos) {
+            return start + (int) (pos % len);
+        }
+    }
+
+    interface PositionTask {
+        void run(Shard shard, long pos);
+    }
+
+    public static class ThreadResult {
+        public final int thread;
+        public final Histogram latency = LatencyReport.newHistogram();
+        public long stolen;
+        public long found;
+        public long errors;
+        public long startNanos;
+        public long endNanos;
+
+        public long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+        }
+
+        ThreadResult(int thread) {
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * One contiguous shard of the items per thread, the first ones one item longer.
+     */
+    static Shard[] split(int items, int threads, int iterations) {
+        Shard[] shards = new Shard[threads];
+        int base = items / threads;
+        int rest = items % threads;
+        int start = 0;
+        for (int t = 0; t < threads; t++) {
+            int len = base + (t < rest ? 1 : 0);
+            shards[t] = new Shard(start, len, iterations);
+            start += len;
+        }
+        return shards;
+    }
+
+    /**
+     * Look up an item and return the latency in microseconds.
+     */
+    private long timedLookup(long item, ThreadResult result) {
+        int c = result.thread % clients.length;
+        long start = System.nanoTime();
+        try {
+            if (ScanItemTable.lookupPrice(clients[c], tables[c], projectColumns, item, settings) != -1) {
+                result.found++;
+            }
+        } catch (KuduException ke) {
+            // e.g. timeouts in a tuning sweep, only the first one of a thread is printed
+            if (result.errors++ == 0) {
+                ke.printStackTrace();
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    /**
+     * Run the chunks of the own shard, then steal the chunks left in the
+     * others, which keeps running until every shard is done.
+     * @return the positions stolen from the other shards
+     */
+    static long drain(Shard[] shards, int thread, int chunk, PositionTask task) {
+        long stolen = 0;
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[(thread + i) % shards.length];
+            long pos;
+            while ((pos = shard.claim(chunk)) >= 0) {
+                long end = Math.min(pos + chunk, shard.work);
+                if (i > 0) {
+                    stolen += end - pos;
+                }
+                for (long p = pos; p < end; p++) {
+                    task.run(shard, p);
+                }
+            }
+        }
+        return stolen;
+    }
+
+    private ThreadResult lookup(int thread, Shard[] shards) {
+        ThreadResult result = new ThreadResult(thread);
+        KeyGenerator keys = keyGenerators.isSequential() ? null : keyGenerators.forThread(thread, threads);
+        // warm up on the own shard, the first lookup of every thread is the cold start
+        long w = shards[thread].start;
+        warmup.recordCold(timedLookup(keys == null ? itemIds[(int) (w++ % itemIds.length)] : keys.nextKey(), result));
+        while (!warmup.isDone()) {
+            warmup.record(timedLookup(keys == null ? itemIds[(int) (w++ % itemIds.length)] : keys.nextKey(), result));
+        }
+        result.found = 0;
+        result.errors = 0;
+        result.startNanos = System.nanoTime();
+        result.stolen = drain(shards, thread, chunk, (shard, p) -> {
+            long item = keys == null ? itemIds[shard.index(p)] : keys.nextKey();
+            result.latency.recordValue(timedLookup(item, result));
+        });
+        result.endNanos = System.nanoTime();
+        return result;
+    }
+
+    /**
+     * Look up every item id iterations times, spread over the threads.
+     */
+    public List<ThreadResult> measure(int iterations) throws Exception {
+        Shard[] shards = split(itemIds.length, threads, iterations);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ThreadResult>> futures = new ArrayList<>(threads);
+            warmup.start();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executorService.submit(() -> lookup(thread, shards)));
+            }
+            List<ThreadResult> results = new ArrayList<>(threads);
+            for (Future<ThreadResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            // a failed thread stops the others too
+            executorService.shutdownNow();
+        }
+    }
+
+    public static Histogram merge(List<ThreadResult> results) {
+        Histogram total = LatencyReport.newHistogram();
+        for (ThreadResult r : results) {
+            total.add(r.latency);
+        }
+        return total;
+    }
+
+    /**
+     * From the first thread starting to measure to the last one finishing.
+     */
+    public static long elapsedMs(List<ThreadResult> results) {
+        long startNanos = Long.MAX_VALUE;
+        long endNanos = 0;
+        for (ThreadResult r : results) {
+            startNanos = Math.min(startNanos, r.startNanos);
+            endNanos = Math.max(endNanos, r.endNanos);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+    }
+
+    public List<ThreadResult> run(int iterations) throws Exception {
+        List<ThreadResult> results = measure(iterations);
+        long found = 0;
+        long errors = 0;
+        for (ThreadResult r : results) {
+            System.out.println(LatencyReport.summarize("thread_" + r.thread, r.latency, r.elapsedMs()) +
+                    " stolen=" + r.stolen);
+            found += r.found;
+            errors += r.errors;
+        }
+        Histogram total = merge(results);
+        System.out.println(warmup.report());
+        System.out.println(LatencyReport.summarize("aggregate(" + threads + " threads)", total, elapsedMs(results)));
+        System.out.println("Found " + found + " of " + total.getTotalCount() + " lookups, " + errors + " errors");
+        return results;
+    }
+
+    public static void scanItems(KuduClient client,
+                                 String itemIdFile,
+                                 String tableName,
+                                 int iteration,
+                                 String keyDistribution,
+                                 int threads,
+                                 int chunk,
+                                 Warmup warmup,
+                                 ClientSettings settings) {
+        System.out.println("item id file: " + itemIdFile);
+        System.out.println("kudu table: " + tableName);
+        System.out.println("iteration: " + iteration + ", threads: " + threads);
+        try {
+            long[] itemIds = ScanItemTable.toArray(ScanItemTable.readFileLines(itemIdFile));
+            if (itemIds.length == 0) {
+                System.out.println("No item ID to scan in " + itemIdFile);
+                return;
+            }
+            KuduTable table = client.openTable(tableName);
+            new ShardedLookup(new KuduClient[]{client}, new KuduTable[]{table}, itemIds,
+                    new KeyGenerators(keyDistribution, itemIds), threads, chunk, warmup, settings).run(iteration);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.apache.kudu.examples;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.LatencyReport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the same sharded lookup workload once per combination of client
+ * settings: I/O worker threads, operation timeout, scanner keep-alive and
+ * batch size, and client instances per JVM. Every combination gets fresh
+ * clients and its own warmup, and the results are printed as one table.
+ */
+public class TuningSweep {
+    private final ExampleArguments args;
+
+    public static class Result {
+        public ClientSettings settings;
+        public Histogram latency;
+        public long elapsedMs;
+        public long found;
+        public long errors;
+    }
+
+    public TuningSweep(ExampleArguments args) {
+        this.args = args;
+    }
+
+    static long[] parseList(String values) {
+        String[] parts = values.split(",");
+        long[] result = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Long.parseLong(parts[i].trim());
+        }
+        return result;
+    }
+
+    public List<ClientSettings> matrix() {
+        List<ClientSettings> matrix = new ArrayList<>();
+        for (long workers : parseList(args.sweepWorkerCounts)) {
+            for (long timeout : parseList(args.sweepOperationTimeoutsMs)) {
+                for (long keepAlive : parseList(args.sweepKeepAliveMs)) {
+                    for (long batch : parseList(args.sweepBatchBytes)) {
+                        for (long clients : parseList(args.sweepClients)) {
+                            matrix.add(new ClientSettings((int) workers, timeout, keepAlive,
+                                    (int) batch, (int) clients));
+                        }
+                    }
+                }
+            }
+        }
+        return matrix;
+    }
+
+    public Result run(ClientSettings settings, long[] itemIds) throws Exception {
+        KuduClient[] clients = new KuduClient[settings.clients];
+        KuduTable[] tables = new KuduTable[settings.clients];
+        try {
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = args.newAsyncClient(settings).syncClient();
+                tables[i] = clients[i].openTable(args.tableName);
+            }
+            ShardedLookup lookup = new ShardedLookup(clients, tables, itemIds,
+                    new KeyGenerators(args.keyDistribution, itemIds), Math.max(1, args.threads),
+                    args.chunkSize, args.newWarmup(), settings);
+            List<ShardedLookup.ThreadResult> threads = lookup.measure(args.iteration);
+            Result result = new Result();
+            result.settings = settings;
+            result.latency = ShardedLookup.merge(threads);
+            result.elapsedMs = ShardedLookup.elapsedMs(threads);
+            for (ShardedLookup.ThreadResult r : threads) {
+                result.found += r.found;
+                result.errors += r.errors;
+            }
+            return result;
+        } finally {
+            for (KuduClient client : clients) {
+                if (client != null) {
+                    client.shutdown();
+                }
+            }
+        }
+    }
+
+    public static String format(List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%7s %9s %9s %10s %7s | %10s %9s %9s %9s %9s %8s",
+                "workers", "timeoutMs", "keepAlive", "batchBytes", "clients",
+                "qps", "p50", "p99", "p99.9", "max", "errors")).append(System.lineSeparator());
+        for (Result r : results) {
+            ClientSettings s = r.settings;
+            sb.append(String.format("%7d %9d %9d %10d %7d | %10.1f %7dus %7dus %7dus %7dus %8d",
+                    s.workerCount, s.operationTimeoutMs, s.keepAlivePeriodMs, s.batchSizeBytes, s.clients,
+                    LatencyReport.qps(r.latency.getTotalCount(), r.elapsedMs),
+                    r.latency.getValueAtPercentile(50), r.latency.getValueAtPercentile(99),
+                    r.latency.getValueAtPercentile(99.9), r.latency.getMaxValue(), r.errors))
+                    .append(System.lineSeparator());
+        }
+        return sb.append("0 is the Kudu default").append(System.lineSeparator()).toString();
+    }
+
+    public static void sweep(ExampleArguments args) throws Exception {
+        long[] itemIds = ScanItemTable.toArray(ScanItemTable.readFileLines(args.itemsIdFile));
+        if (itemIds.length == 0) {
+            System.out.println("No item ID to scan in " + args.itemsIdFile);
+            return;
+        }
+        TuningSweep sweep = new TuningSweep(args);
+        List<Result> results = new ArrayList<>();
+        for (ClientSettings settings : sweep.matrix()) {
+            System.out.println("Running " + settings);
+            results.add(sweep.run(settings, itemIds));
+        }
+        System.out.println(format(results));
+    }
+}
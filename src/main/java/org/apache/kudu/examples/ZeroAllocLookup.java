@@ -0,0 +1,136 @@
+package org.apache.kudu.examples;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
+import org.apache.kudu.client.KuduPredicate;
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.RowResultIterator;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.examples.metrics.AllocationTracker;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.examples.metrics.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point lookups that allocate as little as possible in our own code: the
+ * equality predicate of every item id and the projection are built once,
+ * the row result is reused, the price is read by column index into a
+ * primitive slot and the latency goes to a pre-sized histogram. The key
+ * generator hands out indexes into the item ids instead of the ids.
+ * The scanner and its RPCs are still allocated by the client, so the
+ * allocation is reported both for the caller thread and for all threads.
+ */
+public class ZeroAllocLookup {
+    public static final String KEY_COLUMN = "item_id";
+    public static final String PRICE_COLUMN = "curnt_price";
+    // latencies above a minute are clamped so that the histogram never resizes
+    public static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    private final KuduClient client;
+    private final KuduTable table;
+    private final long[] itemIds;
+    private final KuduPredicate[] predicates;
+    private final double[] prices;
+    private final List<String> projection = new ArrayList<>(1);
+
+    public ZeroAllocLookup(KuduClient client, KuduTable table, long[] itemIds) {
+        this.client = client;
+        this.table = table;
+        this.itemIds = itemIds;
+        this.predicates = new KuduPredicate[itemIds.length];
+        this.prices = new double[itemIds.length];
+        ColumnSchema keyColumn = table.getSchema().getColumn(KEY_COLUMN);
+        for (int i = 0; i < itemIds.length; i++) {
+            predicates[i] = KuduPredicate.newComparisonPredicate(keyColumn, KuduPredicate.ComparisonOp.EQUAL, itemIds[i]);
+        }
+        Arrays.fill(prices, -1);
+        projection.add(PRICE_COLUMN);
+    }
+
+    /**
+     * Look up the item at idx into its price slot and return the latency in microseconds.
+     */
+    public long lookup(int idx) throws KuduException {
+        long start = System.nanoTime();
+        KuduScanner scanner = client.newScannerBuilder(table)
+                .setProjectedColumnNames(projection)
+                .cacheBlocks(false)
+                .addPredicate(predicates[idx])
+                .build();
+        scanner.setReuseRowResult(true);
+        while (scanner.hasMoreRows()) {
+            RowResultIterator results = scanner.nextRows();
+            while (results.hasNext()) {
+                prices[idx] = results.next().getDouble(0);
+            }
+        }
+        return Math.min(MAX_LATENCY_US, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    public double getPrice(int idx) {
+        return prices[idx];
+    }
+
+    public void run(KeyGenerator indexes, int iteration, Warmup warmup) throws KuduException {
+        // the first lookup fills the table location cache and negotiates the connection
+        warmup.recordCold(lookup((int) indexes.nextKey()));
+        warmup.start();
+        while (!warmup.isDone()) {
+            warmup.record(lookup((int) indexes.nextKey()));
+        }
+        Histogram latency = new Histogram(MAX_LATENCY_US, LatencyReport.SIGNIFICANT_DIGITS);
+        long lookups = (long) iteration * itemIds.length;
+        AllocationTracker tracker = AllocationTracker.start();
+        long start = System.nanoTime();
+        for (long i = 0; i < lookups; i++) {
+            latency.recordValue(lookup((int) indexes.nextKey()));
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        tracker.stop();
+        System.out.println("Run " + iteration + " zero-allocation scans take " + elapsedMs + " ms");
+        System.out.println(warmup.report());
+        System.out.println(LatencyReport.summarize("steady-state", latency, elapsedMs));
+        System.out.println(tracker.report(lookups));
+    }
+
+    public static void scanItems(KuduClient client,
+                                 String itemIdFile,
+                                 String tableName,
+                                 int iteration,
+                                 String keyDistribution,
+                                 Warmup warmup) {
+        System.out.println("item id file: " + itemIdFile);
+        System.out.println("kudu table: " + tableName);
+        System.out.println("iteration: " + iteration + ", key distribution: " + keyDistribution);
+        if (!AllocationTracker.isSupported()) {
+            System.out.println("Thread allocation counters are not supported by this JVM, only GC time is reported");
+        }
+        try {
+            long[] itemIds = ScanItemTable.toArray(ScanItemTable.readFileLines(itemIdFile));
+            if (itemIds.length == 0) {
+                System.out.println("No item ID to scan in " + itemIdFile);
+                return;
+            }
+            KeyGenerators generators = new KeyGenerators(keyDistribution, itemIds.length);
+            if (generators.isTrace()) {
+                throw new IllegalArgumentException("A trace replays item ids, not indexes, " +
+                        "use the default lookup mode to replay it");
+            }
+            ZeroAllocLookup lookup = new ZeroAllocLookup(client, client.openTable(tableName), itemIds);
+            lookup.run(generators.forThread(0, 1), iteration, warmup);
+            for (int i = 0; i < itemIds.length; i++) {
+                System.out.println("item: " + itemIds[i] + " price: " + lookup.getPrice(i));
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+}
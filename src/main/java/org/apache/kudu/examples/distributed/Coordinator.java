@@ -0,0 +1,178 @@
+package org.apache.kudu.examples.distributed;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.examples.Example;
+import org.apache.kudu.examples.ExampleArguments;
+import org.apache.kudu.examples.metrics.LatencyReport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.kudu.examples.Utilities.convertExceptionMessage;
+
+/**
+ * Hands out the workload spec to a fixed number of {@link Worker}s, starts
+ * them at the same time and merges the histogram snapshots they stream back
+ * into a global view of throughput and latency percentiles.
+ */
+public class Coordinator {
+    private final ExampleArguments eArgParser;
+    private final String[] specArgs;
+    private final ServerSocket server;
+
+    private final Histogram total = LatencyReport.newHistogram();
+    private final Histogram interval = LatencyReport.newHistogram();
+    private final Map<String, Histogram> perWorker = new TreeMap<>();
+    // per worker: the start of its first snapshot and the end of its last one
+    private final Map<String, long[]> perWorkerWindow = new TreeMap<>();
+    private long firstStartMs = Long.MAX_VALUE;
+    private long lastEndMs = 0;
+
+    /**
+     * @param eArgParser the coordinator arguments
+     * @param specArgs the command line handed out to every worker as the workload spec
+     */
+    public Coordinator(ExampleArguments eArgParser, String[] specArgs) throws IOException {
+        this.eArgParser = eArgParser;
+        this.specArgs = specArgs;
+        this.server = new ServerSocket(eArgParser.coordinatorPort);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Blocks until every worker finished, and returns the merged histogram.
+     */
+    public Histogram run() throws Exception {
+        int workers = eArgParser.workers;
+        List<Socket> sockets = new ArrayList<>(workers);
+        try {
+            System.out.println("Coordinator listens on port " + getPort() +
+                    ", waiting for " + workers + " workers");
+            List<String> names = new ArrayList<>(workers);
+            List<DataInputStream> inputs = new ArrayList<>(workers);
+            List<DataOutputStream> outputs = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                Protocol.expect(Protocol.HELLO, in.readByte());
+                String name = "worker_" + i + "(" + in.readUTF() + ")";
+                System.out.println("Registered " + name);
+                names.add(name);
+                inputs.add(in);
+                outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            }
+
+            // The delay is relative to the moment the spec is received, so
+            // the workers don't depend on synchronized clocks.
+            long startAt = System.currentTimeMillis() + eArgParser.startDelayMs;
+            for (int i = 0; i < workers; i++) {
+                Protocol.writeSpec(outputs.get(i), i, startAt - System.currentTimeMillis(), specArgs);
+            }
+
+            CountDownLatch done = new CountDownLatch(workers);
+            for (int i = 0; i < workers; i++) {
+                final String name = names.get(i);
+                final DataInputStream in = inputs.get(i);
+                Thread t = new Thread(() -> receive(name, in, done), "coordinator-" + name);
+                t.setDaemon(true);
+                t.start();
+            }
+
+            // the intervals count from the synchronized start, nothing runs before it
+            long lastReport = startAt;
+            while (!done.await(eArgParser.reportIntervalMs, TimeUnit.MILLISECONDS)) {
+                long now = System.currentTimeMillis();
+                if (now < startAt) {
+                    continue;
+                }
+                reportInterval(now - lastReport);
+                lastReport = now;
+            }
+            reportInterval(Math.max(0, System.currentTimeMillis() - lastReport));
+            return report();
+        } finally {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            server.close();
+        }
+    }
+
+    private void receive(String name, DataInputStream in, CountDownLatch done) {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == Protocol.SNAPSHOT) {
+                    merge(name, Protocol.readSnapshot(in));
+                } else {
+                    Protocol.expect(Protocol.DONE, type);
+                    System.out.println(name + " finished: " + in.readUTF());
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Lost " + name + System.lineSeparator() + convertExceptionMessage(e));
+        } finally {
+            done.countDown();
+        }
+    }
+
+    private synchronized void merge(String name, Histogram h) {
+        total.add(h);
+        interval.add(h);
+        perWorker.computeIfAbsent(name, (k) -> LatencyReport.newHistogram()).add(h);
+        long[] window = perWorkerWindow.computeIfAbsent(name, (k) -> new long[]{Long.MAX_VALUE, 0});
+        window[0] = Math.min(window[0], h.getStartTimeStamp());
+        window[1] = Math.max(window[1], h.getEndTimeStamp());
+        firstStartMs = Math.min(firstStartMs, h.getStartTimeStamp());
+        lastEndMs = Math.max(lastEndMs, h.getEndTimeStamp());
+    }
+
+    private synchronized void reportInterval(long elapsedMs) {
+        System.out.println(LatencyReport.summarize("interval", interval, elapsedMs));
+        push("interval_qps", (long) LatencyReport.qps(interval.getTotalCount(), elapsedMs));
+        push("interval_p99_us", interval.getValueAtPercentile(99));
+        interval.reset();
+    }
+
+    private synchronized Histogram report() {
+        long elapsedMs = lastEndMs - firstStartMs;
+        for (Map.Entry<String, Histogram> entry : perWorker.entrySet()) {
+            // a worker that started late or finished early is rated over its own run
+            long[] window = perWorkerWindow.get(entry.getKey());
+            System.out.println(LatencyReport.summarize(entry.getKey(), entry.getValue(), window[1] - window[0]));
+        }
+        System.out.println(LatencyReport.summarize("global", total, elapsedMs));
+        push("global_qps", (long) LatencyReport.qps(total.getTotalCount(), elapsedMs));
+        push("global_p99_us", total.getValueAtPercentile(99));
+        return total.copy();
+    }
+
+    private void push(String label, long value) {
+        try {
+            Example.sendPushgateway(eArgParser, label, value);
+        } catch (IOException e) {
+            System.out.println(convertExceptionMessage(e));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.apache.kudu.examples.distributed;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+/**
+ * Wire format between the coordinator and its workers. Every message starts
+ * with a one byte type:
+ * <pre>
+ *   HELLO    worker -&gt; coordinator: UTF worker name
+ *   SPEC     coordinator -&gt; worker: int worker index, long start delay ms, int argc, UTF args...
+ *   SNAPSHOT worker -&gt; coordinator: long start ms, long end ms, int length, compressed histogram
+ *   DONE     worker -&gt; coordinator: UTF workload result
+ * </pre>
+ */
+public class Protocol {
+    public static final byte HELLO = 1;
+    public static final byte SPEC = 2;
+    public static final byte SNAPSHOT = 3;
+    public static final byte DONE = 4;
+    private static final int MAX_RESULT_LEN = 16 * 1024;
+
+    public static void writeSpec(DataOutputStream out,
+                                 int workerIndex,
+                                 long startDelayMs,
+                                 String[] args) throws IOException {
+        out.writeByte(SPEC);
+        out.writeInt(workerIndex);
+        out.writeLong(startDelayMs);
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    public static void writeSnapshot(DataOutputStream out, Histogram h) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(h.getNeededByteBufferCapacity());
+        int len = h.encodeIntoCompressedByteBuffer(buf);
+        out.writeByte(SNAPSHOT);
+        out.writeLong(h.getStartTimeStamp());
+        out.writeLong(h.getEndTimeStamp());
+        out.writeInt(len);
+        out.write(buf.array(), 0, len);
+        out.flush();
+    }
+
+    public static void writeDone(DataOutputStream out, String result) throws IOException {
+        String msg = result == null ? "" : result;
+        // writeUTF is limited to 64KB, long stack traces are cut
+        if (msg.length() > MAX_RESULT_LEN) {
+            msg = msg.substring(0, MAX_RESULT_LEN);
+        }
+        out.writeByte(DONE);
+        out.writeUTF(msg);
+        out.flush();
+    }
+
+    public static Histogram readSnapshot(DataInputStream in) throws IOException {
+        long startMs = in.readLong();
+        long endMs = in.readLong();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try {
+            Histogram h = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+            h.setStartTimeStamp(startMs);
+            h.setEndTimeStamp(endMs);
+            return h;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted histogram snapshot", e);
+        }
+    }
+
+    public static void expect(byte expected, byte actual) throws IOException {
+        if (expected != actual) {
+            throw new IOException("Unexpected message type " + actual + ", expected " + expected);
+        }
+    }
+}
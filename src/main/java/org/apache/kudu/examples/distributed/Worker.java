@@ -0,0 +1,183 @@
+package org.apache.kudu.examples.distributed;
+
+import org.HdrHistogram.Recorder;
+import org.apache.kudu.client.AsyncKuduClient;
+import org.apache.kudu.examples.Benchmark;
+import org.apache.kudu.examples.Example;
+import org.apache.kudu.examples.ExampleArguments;
+import org.apache.kudu.examples.metrics.LatencyReport;
+import org.apache.kudu.examples.threading.StressExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.kudu.examples.Utilities.convertExceptionMessage;
+
+/**
+ * Connects to a {@link Coordinator}, receives the workload spec and the start
+ * delay, runs the workload of the spec's mode and streams latency histogram
+ * snapshots back.
+ */
+public class Worker {
+    public interface Workload {
+        String run(ExampleArguments spec, Recorder recorder) throws Exception;
+    }
+
+    /**
+     * The same create/insert/scan cycle as {@link Example#multiThreadStressTest},
+     * on one client shared by the threads, recording the latency of every cycle.
+     */
+    public static final Workload STRESS = (spec, recorder) -> {
+        AtomicLong runs = new AtomicLong();
+        AsyncKuduClient client = spec.newAsyncClient();
+        try {
+            StressExecutors se = new StressExecutors(spec.threads, spec.threads, spec.duration);
+            se.run((i) -> {
+                long start = System.nanoTime();
+                String rtn = Example.RunInternal(i, spec, client);
+                recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                runs.incrementAndGet();
+                return rtn;
+            }, (s) -> {
+            });
+            se.awaitTermination(Long.MAX_VALUE);
+        } finally {
+            client.close();
+        }
+        return "Finished " + runs.get() + " runs";
+    };
+
+    /**
+     * The modes a worker runs. Soak is not one of them, its steady-state
+     * windows and reports are per process and the workers only stream latencies.
+     */
+    public static final Map<String, Workload> WORKLOADS = new LinkedHashMap<>();
+
+    static {
+        WORKLOADS.put("stress", STRESS);
+    }
+
+    /**
+     * The mode of a workload spec, the coordinator's --mode or what the options ask for without -w.
+     */
+    public static String modeOf(ExampleArguments spec) {
+        if (spec.mode != null && !"coordinator".equals(spec.mode)) {
+            return spec.mode;
+        }
+        int workers = spec.workers;
+        spec.workers = 0;
+        try {
+            return Benchmark.inferMode(spec, null);
+        } finally {
+            spec.workers = workers;
+        }
+    }
+
+    public static Workload workloadOf(ExampleArguments spec) {
+        String mode = modeOf(spec);
+        Workload workload = WORKLOADS.get(mode);
+        if (workload == null) {
+            throw new IllegalArgumentException("Mode " + mode + " can't run on workers, they run " +
+                    WORKLOADS.keySet());
+        }
+        return workload;
+    }
+
+    private final String host;
+    private final int port;
+
+    public Worker(String coordinator) {
+        int idx = coordinator.lastIndexOf(':');
+        if (idx < 0) {
+            throw new IllegalArgumentException("Coordinator should be host:port, but got " + coordinator);
+        }
+        this.host = coordinator.substring(0, idx);
+        this.port = Integer.parseInt(coordinator.substring(idx + 1));
+    }
+
+    public Worker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Run the workload of the spec's mode.
+     */
+    public String run() throws Exception {
+        return run(null);
+    }
+
+    /**
+     * @param workload the workload to run whatever the spec's mode, null for the spec's
+     */
+    public String run(Workload workload) throws Exception {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeByte(Protocol.HELLO);
+            out.writeUTF(ManagementFactory.getRuntimeMXBean().getName());
+            out.flush();
+
+            Protocol.expect(Protocol.SPEC, in.readByte());
+            int workerIndex = in.readInt();
+            long startDelayMs = in.readLong();
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            ExampleArguments spec = new ExampleArguments();
+            if (!spec.parseArgs(args)) {
+                throw new IOException("Invalid workload spec from coordinator");
+            }
+            spec.workers = 0;
+            // every worker gets its own tables so that the workers don't collide
+            spec.tableName = (spec.tableName == null ?
+                    "java_example-" + System.currentTimeMillis() :
+                    spec.tableName) + "_w" + workerIndex;
+
+            System.out.println("Worker " + workerIndex + " starts in " + startDelayMs + " ms");
+            if (startDelayMs > 0) {
+                Thread.sleep(startDelayMs);
+            }
+
+            Recorder recorder = LatencyReport.newRecorder();
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+            reporter.scheduleAtFixedRate(() -> {
+                try {
+                    synchronized (out) {
+                        Protocol.writeSnapshot(out, recorder.getIntervalHistogram());
+                    }
+                } catch (Exception e) {
+                    System.out.println(convertExceptionMessage(e));
+                }
+            }, spec.reportIntervalMs, spec.reportIntervalMs, TimeUnit.MILLISECONDS);
+
+            String result;
+            try {
+                result = (workload != null ? workload : workloadOf(spec)).run(spec, recorder);
+            } catch (Exception e) {
+                result = convertExceptionMessage(e);
+            } finally {
+                reporter.shutdown();
+                reporter.awaitTermination(spec.reportIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            synchronized (out) {
+                Protocol.writeSnapshot(out, recorder.getIntervalHistogram());
+                Protocol.writeDone(out, result);
+            }
+            return result;
+        }
+    }
+}
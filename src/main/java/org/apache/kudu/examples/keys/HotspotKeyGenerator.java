@@ -0,0 +1,24 @@
+package org.apache.kudu.examples.keys;
+
+/**
+ * A fraction of the operations goes to a small hot set at the start of the
+ * key space, the rest is uniform over the remaining cold keys.
+ */
+public class HotspotKeyGenerator extends IndexedKeyGenerator {
+    private final long hotCount;
+    private final double hotOpFraction;
+
+    public HotspotKeyGenerator(long[] keys, long count, long seed, double hotSetFraction, double hotOpFraction) {
+        super(keys, count, seed);
+        this.hotCount = Math.max(1, Math.min(count, (long) (count * hotSetFraction)));
+        this.hotOpFraction = hotOpFraction;
+    }
+
+    @Override
+    protected long nextIndex() {
+        if (hotCount == count || random.nextDouble() < hotOpFraction) {
+            return random.nextLong(hotCount);
+        }
+        return hotCount + random.nextLong(count - hotCount);
+    }
+}
@@ -0,0 +1,31 @@
+package org.apache.kudu.examples.keys;
+
+import java.util.SplittableRandom;
+
+/**
+ * Base class of the synthetic distributions. They pick an index in
+ * [0, count) which is mapped to a key through the optional key array,
+ * e.g. the item ids loaded from a file. Without a key array the index is the key.
+ */
+public abstract class IndexedKeyGenerator implements KeyGenerator {
+    protected final long[] keys;
+    protected final long count;
+    protected final SplittableRandom random;
+
+    protected IndexedKeyGenerator(long[] keys, long count, long seed) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Empty key space");
+        }
+        this.keys = keys;
+        this.count = count;
+        this.random = new SplittableRandom(seed);
+    }
+
+    protected abstract long nextIndex();
+
+    @Override
+    public final long nextKey() {
+        long idx = nextIndex();
+        return keys == null ? idx : keys[(int) idx];
+    }
+}
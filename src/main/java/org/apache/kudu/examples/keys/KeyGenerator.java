@@ -0,0 +1,10 @@
+package org.apache.kudu.examples.keys;
+
+/**
+ * Produces the next key to read or write. Implementations keep only primitive
+ * state so that drawing a key doesn't allocate, and they are not thread-safe:
+ * every worker thread gets its own instance from {@link KeyGenerators}.
+ */
+public interface KeyGenerator {
+    long nextKey();
+}
@@ -0,0 +1,136 @@
+package org.apache.kudu.examples.keys;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses a key distribution spec and hands out one {@link KeyGenerator} per
+ * thread over a shared key space. The supported specs are:
+ * <pre>
+ *   uniform
+ *   sequential
+ *   zipfian[:theta]
+ *   scrambled[:theta]                   scrambled zipfian
+ *   hotspot[:hotSetFraction[:hotOpFraction]]
+ *   latest[:theta]                      zipfian towards the latest written key
+ *   trace:file[:speed]                  replay a recorded access trace
+ * </pre>
+ */
+public class KeyGenerators {
+    public static final String SEQUENTIAL = "sequential";
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    // zeta(count, theta) by "count:theta", O(count) to compute
+    static final Map<String, Double> ZETAS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String[] params;
+    private final long[] keys;
+    private final long count;
+    private final AtomicLong cursor = new AtomicLong();
+    // the index of the latest written key, -1 before the first write
+    private final AtomicLong latest = new AtomicLong(-1);
+    private final KeyTrace trace;
+
+    /**
+     * @param spec the distribution spec
+     * @param keys the key space, e.g. the item ids loaded from a file
+     */
+    public KeyGenerators(String spec, long[] keys) throws IOException {
+        this(spec, keys, keys.length);
+    }
+
+    /**
+     * @param spec the distribution spec
+     * @param count the key space is [0, count)
+     */
+    public KeyGenerators(String spec, long count) throws IOException {
+        this(spec, null, count);
+    }
+
+    private KeyGenerators(String spec, long[] keys, long count) throws IOException {
+        String[] parts = (spec == null ? SEQUENTIAL : spec).split(":");
+        this.name = parts[0].toLowerCase();
+        this.params = parts;
+        this.keys = keys;
+        this.count = count;
+        this.trace = name.equals("trace") ? KeyTrace.load(param(1, null)) : null;
+        // fail fast on a bad spec
+        forThread(0, 1);
+    }
+
+    public boolean isSequential() {
+        return name.equals(SEQUENTIAL);
+    }
+
+    /**
+     * A trace replays its recorded keys instead of drawing from the key space.
+     */
+    public boolean isTrace() {
+        return trace != null;
+    }
+
+    /**
+     * Record a key the workload wrote, whatever distribution it came from, for
+     * the latest distribution to follow. Writes go to the [0, count) key
+     * spaces where a key is its own index, keys outside of it are ignored.
+     */
+    public void publish(long key) {
+        if (keys == null && key >= 0 && key < count) {
+            latest.set(key);
+        }
+    }
+
+    /**
+     * @return the latest published key, -1 before the first write
+     */
+    public long latestKey() {
+        return latest.get();
+    }
+
+    /**
+     * The zeta constant of a zipfian key space. It is computed once per count
+     * and theta and shared by the threads and by every KeyGenerators built
+     * over the same key space, e.g. one per stress cycle.
+     */
+    static double zetan(long count, double theta) {
+        ZipfianKeyGenerator.checkTheta(theta);
+        return ZETAS.computeIfAbsent(count + ":" + theta, k -> ZipfianKeyGenerator.zeta(count, theta));
+    }
+
+    public KeyGenerator forThread(int thread, int threads) {
+        long seed = SEED * (thread + 1);
+        double theta = ZipfianKeyGenerator.DEFAULT_THETA;
+        switch (name) {
+            case "uniform":
+                return new UniformKeyGenerator(keys, count, seed);
+            case SEQUENTIAL:
+                return new SequentialKeyGenerator(keys, count, cursor);
+            case "zipfian":
+                theta = doubleParam(1, theta);
+                return new ZipfianKeyGenerator(keys, count, seed, theta, zetan(count, theta), false);
+            case "scrambled":
+                theta = doubleParam(1, theta);
+                return new ZipfianKeyGenerator(keys, count, seed, theta, zetan(count, theta), true);
+            case "hotspot":
+                return new HotspotKeyGenerator(keys, count, seed,
+                        doubleParam(1, 0.2), doubleParam(2, 0.8));
+            case "latest":
+                theta = doubleParam(1, theta);
+                return new LatestKeyGenerator(keys, count, seed, theta, zetan(count, theta), latest);
+            case "trace":
+                return new TraceReplayKeyGenerator(trace, thread, threads, doubleParam(2, 1.0));
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + name);
+        }
+    }
+
+    private String param(int idx, String defaultValue) {
+        return idx < params.length ? params[idx] : defaultValue;
+    }
+
+    private double doubleParam(int idx, double defaultValue) {
+        return idx < params.length ? Double.parseDouble(params[idx]) : defaultValue;
+    }
+}
@@ -0,0 +1,61 @@
+package org.apache.kudu.examples.keys;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A recorded access trace. Every line is either "timestamp_ms,key" or just
+ * "key"; without timestamps the trace is replayed as fast as possible.
+ */
+public class KeyTrace {
+    final long[] timestampsMs;
+    final long[] keys;
+    final int size;
+    final boolean timed;
+
+    private KeyTrace(long[] timestampsMs, long[] keys, int size, boolean timed) {
+        this.timestampsMs = timestampsMs;
+        this.keys = keys;
+        this.size = size;
+        this.timed = timed;
+    }
+
+    public static KeyTrace load(String fileName) throws IOException {
+        long[] timestamps = new long[1024];
+        long[] keys = new long[1024];
+        int size = 0;
+        boolean timed = true;
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (size == keys.length) {
+                    timestamps = Arrays.copyOf(timestamps, size * 2);
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    timed = false;
+                    keys[size] = Long.parseLong(line);
+                } else {
+                    timestamps[size] = Long.parseLong(line.substring(0, comma).trim());
+                    keys[size] = Long.parseLong(line.substring(comma + 1).trim());
+                }
+                size++;
+            }
+        }
+        if (size == 0) {
+            throw new IOException("No access in trace " + fileName);
+        }
+        return new KeyTrace(timestamps, keys, size, timed);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,29 @@
+package org.apache.kudu.examples.keys;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Skewed towards the most recently written keys: a zipfian rank counted back
+ * from the index of the latest key the writers published through
+ * {@link KeyGenerators#publish(long)}. Before anything is written, the end of
+ * the key space is treated as the latest.
+ */
+public class LatestKeyGenerator extends IndexedKeyGenerator {
+    private final AtomicLong latestIndex;
+    private final ZipfianKeyGenerator zipfian;
+
+    public LatestKeyGenerator(long[] keys, long count, long seed, double theta, double zetan,
+                              AtomicLong latestIndex) {
+        super(keys, count, seed);
+        this.latestIndex = latestIndex;
+        this.zipfian = new ZipfianKeyGenerator(null, count, seed, theta, zetan, false);
+    }
+
+    @Override
+    protected long nextIndex() {
+        long written = latestIndex.get();
+        long latest = written < 0 ? count - 1 : written;
+        long idx = latest - zipfian.nextRank();
+        return idx < 0 ? idx + count : idx;
+    }
+}
@@ -0,0 +1,21 @@
+package org.apache.kudu.examples.keys;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Walks the key space in order and wraps around. The cursor is shared by all
+ * threads of a run, so together they visit every key once per pass.
+ */
+public class SequentialKeyGenerator extends IndexedKeyGenerator {
+    private final AtomicLong cursor;
+
+    public SequentialKeyGenerator(long[] keys, long count, AtomicLong cursor) {
+        super(keys, count, 0);
+        this.cursor = cursor;
+    }
+
+    @Override
+    protected long nextIndex() {
+        return cursor.getAndIncrement() % count;
+    }
+}
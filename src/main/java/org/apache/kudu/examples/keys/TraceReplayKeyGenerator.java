@@ -0,0 +1,50 @@
+package org.apache.kudu.examples.keys;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the keys of a {@link KeyTrace} and keeps their original
+ * inter-arrival timing: {@link #nextKey()} parks until the access is due.
+ * With several threads, thread t replays the accesses t, t + threads, ...
+ * so that together they reproduce the trace. The speed factor scales the
+ * timing, e.g. 2 replays twice as fast. The trace wraps around when exhausted.
+ */
+public class TraceReplayKeyGenerator implements KeyGenerator {
+    private final KeyTrace trace;
+    private final int first;
+    private final int stride;
+    private final double speed;
+    private int pos;
+    private long startNanos = -1;
+
+    public TraceReplayKeyGenerator(KeyTrace trace, int thread, int threads, double speed) {
+        this.trace = trace;
+        this.first = thread % trace.size;
+        this.stride = Math.max(1, threads);
+        this.speed = speed;
+        this.pos = first;
+    }
+
+    @Override
+    public long nextKey() {
+        if (trace.timed && speed > 0) {
+            long now = System.nanoTime();
+            if (startNanos < 0) {
+                startNanos = now;
+            }
+            long offsetMs = trace.timestampsMs[pos] - trace.timestampsMs[0];
+            long due = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(offsetMs) / speed);
+            if (due > now) {
+                LockSupport.parkNanos(due - now);
+            }
+        }
+        long key = trace.keys[pos];
+        pos += stride;
+        if (pos >= trace.size) {
+            pos = first;
+            startNanos = -1;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,12 @@
+package org.apache.kudu.examples.keys;
+
+public class UniformKeyGenerator extends IndexedKeyGenerator {
+    public UniformKeyGenerator(long[] keys, long count, long seed) {
+        super(keys, count, seed);
+    }
+
+    @Override
+    protected long nextIndex() {
+        return random.nextLong(count);
+    }
+}
@@ -0,0 +1,78 @@
+package org.apache.kudu.examples.keys;
+
+/**
+ * Zipfian distribution as described in "Quickly Generating Billion-Record
+ * Synthetic Databases" by Gray et al., the same algorithm YCSB uses.
+ * Index 0 is the most popular. When scrambled, the popular indexes are
+ * hashed over the whole key space instead of being clustered at its start.
+ */
+public class ZipfianKeyGenerator extends IndexedKeyGenerator {
+    public static final double DEFAULT_THETA = 0.99;
+    private static final long FNV_OFFSET_BASIS_64 = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME_64 = 1099511628211L;
+
+    private final boolean scrambled;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+    private final double half;
+
+    /**
+     * @param zetan zeta(count, theta), see {@link KeyGenerators#zetan(long, double)}
+     */
+    public ZipfianKeyGenerator(long[] keys, long count, long seed, double theta, double zetan, boolean scrambled) {
+        super(keys, count, seed);
+        checkTheta(theta);
+        this.scrambled = scrambled;
+        this.zetan = zetan;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / count, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+        this.half = 1 + Math.pow(0.5, theta);
+    }
+
+    static void checkTheta(double theta) {
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("Zipfian theta should be in (0, 1), but got " + theta);
+        }
+    }
+
+    static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, theta);
+        }
+        return sum;
+    }
+
+    static long fnvhash64(long val) {
+        long hash = FNV_OFFSET_BASIS_64;
+        for (int i = 0; i < 8; i++) {
+            hash ^= val & 0xff;
+            hash *= FNV_PRIME_64;
+            val >>= 8;
+        }
+        return hash & Long.MAX_VALUE;
+    }
+
+    /**
+     * The rank of the next draw, 0 being the most popular.
+     */
+    long nextRank() {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < half) {
+            return 1;
+        }
+        long rank = (long) (count * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(rank, count - 1);
+    }
+
+    @Override
+    protected long nextIndex() {
+        long rank = nextRank();
+        return scrambled ? fnvhash64(rank) % count : rank;
+    }
+}
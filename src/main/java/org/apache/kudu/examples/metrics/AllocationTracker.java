@@ -0,0 +1,140 @@
+package org.apache.kudu.examples.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap allocation and the garbage collections over a
+ * measurement window: the bytes allocated by the calling thread, by all
+ * threads (including the client's I/O threads), and the count and time of
+ * the stop-the-world collections. The collectors that report concurrent
+ * cycles ("ZGC Cycles", "Shenandoah Cycles", "G1 Concurrent GC",
+ * "ConcurrentMarkSweep") are left out, their time is mostly background work.
+ * <p>
+ * The bytes of all threads are per-thread deltas: a background poller keeps
+ * the last count of every thread, so a thread that exits in the window keeps
+ * what it allocated until the last poll, and a thread started in it counts
+ * from 0. The poller's own allocation is left out.
+ */
+public class AllocationTracker {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final long POLL_MS = 100;
+
+    private final long threadId = Thread.currentThread().getId();
+    // per thread id: the bytes at the start of the window or 0, and at the last poll
+    private final Map<Long, long[]> threads = new HashMap<>();
+    private ScheduledExecutorService poller;
+    private volatile long pollerId = -1;
+    private long threadBytes;
+    private long allBytes;
+    private long pauseCount;
+    private long pauseMs;
+
+    /**
+     * Whether the collector's time is pause time rather than concurrent cycles.
+     */
+    static boolean isPauseCollector(String name) {
+        return !name.endsWith(" Cycles") && !name.contains("Concurrent");
+    }
+
+    public static boolean isSupported() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Record the current bytes of every live thread.
+     * @param first whether the window starts, otherwise new threads count from 0
+     */
+    private synchronized void poll(boolean first) {
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] < 0 || ids[i] == pollerId) {
+                continue;
+            }
+            long[] counts = threads.get(ids[i]);
+            if (counts == null) {
+                threads.put(ids[i], new long[]{first ? bytes[i] : 0, bytes[i]});
+            } else {
+                counts[1] = bytes[i];
+            }
+        }
+    }
+
+    public static AllocationTracker start() {
+        AllocationTracker tracker = new AllocationTracker();
+        tracker.sample(-1);
+        if (isSupported()) {
+            tracker.poll(true);
+            tracker.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "allocation-tracker");
+                t.setDaemon(true);
+                tracker.pollerId = t.getId();
+                return t;
+            });
+            tracker.poller.scheduleWithFixedDelay(() -> tracker.poll(false), POLL_MS, POLL_MS, TimeUnit.MILLISECONDS);
+        }
+        return tracker;
+    }
+
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            try {
+                poller.awaitTermination(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sample(1);
+        if (isSupported()) {
+            poll(false);
+            synchronized (this) {
+                for (long[] counts : threads.values()) {
+                    allBytes += counts[1] - counts[0];
+                }
+            }
+        }
+    }
+
+    private void sample(int sign) {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (isPauseCollector(gc.getName())) {
+                count += Math.max(0, gc.getCollectionCount());
+                time += Math.max(0, gc.getCollectionTime());
+            }
+        }
+        pauseCount += sign * count;
+        pauseMs += sign * time;
+        if (isSupported()) {
+            threadBytes += sign * THREADS.getThreadAllocatedBytes(threadId);
+        }
+    }
+
+    public long getThreadBytes() {
+        return threadBytes;
+    }
+
+    public long getAllBytes() {
+        return allBytes;
+    }
+
+    public String report(long operations) {
+        if (!isSupported()) {
+            return String.format("allocation: not supported by this JVM, gc: %d pauses, %d ms pause time",
+                    pauseCount, pauseMs);
+        }
+        long ops = Math.max(1, operations);
+        return String.format("allocation: %.1f bytes/op on the caller thread, %.1f bytes/op on all threads, " +
+                        "gc: %d pauses, %d ms pause time",
+                threadBytes / (double) ops, allBytes / (double) ops, pauseCount, pauseMs);
+    }
+}
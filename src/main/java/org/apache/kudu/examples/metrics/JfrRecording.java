@@ -0,0 +1,53 @@
+package org.apache.kudu.examples.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Starts and stops a Java Flight Recorder recording of this JVM through the
+ * DiagnosticCommand MBean, the same as "jcmd pid JFR.start", so that it
+ * works on every JVM with JFR without compiling against jdk.jfr.
+ */
+public class JfrRecording {
+    private static final String NAME = "kuduperf";
+
+    private final String fileName;
+    private boolean running;
+
+    public JfrRecording(String fileName) {
+        this.fileName = fileName;
+    }
+
+    private static String invoke(String command, String... args) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object result = server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), command,
+                new Object[]{args}, new String[]{String[].class.getName()});
+        return result == null ? "" : result.toString().trim();
+    }
+
+    /**
+     * @return false if this JVM can't record, the reason is printed
+     */
+    public boolean start() {
+        try {
+            System.out.println(invoke("jfrStart", "name=" + NAME, "settings=profile", "filename=" + fileName));
+            running = true;
+        } catch (Exception e) {
+            System.out.println("JFR is not available: " + e);
+        }
+        return running;
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        try {
+            System.out.println(invoke("jfrStop", "name=" + NAME, "filename=" + fileName));
+        } catch (Exception e) {
+            System.out.println("Failed to stop JFR: " + e);
+        }
+        running = false;
+    }
+}
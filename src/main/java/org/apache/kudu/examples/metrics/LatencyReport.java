@@ -0,0 +1,38 @@
+package org.apache.kudu.examples.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Helpers to build and print latency histograms. All latencies are
+ * recorded in microseconds.
+ */
+public class LatencyReport {
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    public static Histogram newHistogram() {
+        return new Histogram(SIGNIFICANT_DIGITS);
+    }
+
+    public static Recorder newRecorder() {
+        return new Recorder(SIGNIFICANT_DIGITS);
+    }
+
+    public static double qps(long count, long elapsedMs) {
+        return elapsedMs <= 0 ? 0 : count * 1000.0 / elapsedMs;
+    }
+
+    public static String summarize(String label, Histogram h, long elapsedMs) {
+        // without an elapsed time, e.g. for cold starts, the throughput is meaningless
+        String throughput = elapsedMs > 0 ? String.format(" qps=%.1f", qps(h.getTotalCount(), elapsedMs)) : "";
+        return String.format("%s: count=%d%s p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus",
+                label,
+                h.getTotalCount(),
+                throughput,
+                h.getValueAtPercentile(50),
+                h.getValueAtPercentile(90),
+                h.getValueAtPercentile(99),
+                h.getValueAtPercentile(99.9),
+                h.getMaxValue());
+    }
+}
@@ -0,0 +1,294 @@
+package org.apache.kudu.examples.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Samples the CPU time and the blocked and waited counts and times of the
+ * threads from ThreadMXBean, grouped into the workload threads (those that
+ * called {@link #register()}), the client I/O threads and the rest. Every
+ * sample reports the interval since the previous one and the summary the
+ * window since {@link #startOnce()}, as shares of the time the threads of the
+ * group were alive in it, which tells a CPU-bound client from a
+ * lock-contended one or one waiting on the network.
+ * <p>
+ * ThreadMXBean only knows live threads, so {@link #poll()} should run often:
+ * a thread that exits keeps what it did until the last poll that saw it.
+ */
+public class ThreadProfiler {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final String[] GROUPS = {"workers", "client I/O", "other"};
+
+    // the per-thread counters of a snapshot
+    static final int CPU_NS = 0;
+    static final int BLOCKED_COUNT = 1;
+    static final int BLOCKED_MS = 2;
+    static final int WAITED_COUNT = 3;
+    static final int WAITED_MS = 4;
+    static final int GROUP = 5;
+
+    // the per-group sums: the threads, the counter deltas, then the alive time
+    static final int THREADS_SEEN = 0;
+    static final int ALIVE_NS = GROUP + 1;
+
+    private final Set<Long> workers = ConcurrentHashMap.newKeySet();
+    private volatile boolean started;
+    private Window total;
+    private Window interval;
+    private long lastPollNanos;
+
+    public ThreadProfiler() {
+        if (THREADS.isThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+        if (THREADS.isThreadContentionMonitoringSupported()) {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+    }
+
+    /**
+     * A thread between two polls of a window: its counters when the window
+     * started or when it was first seen, and at the last poll that saw it.
+     */
+    private static final class Tracked {
+        final long[] from;
+        final long startNanos;
+        long[] last;
+        long lastNanos;
+
+        Tracked(long[] from, long[] last, long startNanos, long lastNanos) {
+            this.from = from;
+            this.last = last;
+            this.startNanos = startNanos;
+            this.lastNanos = lastNanos;
+        }
+    }
+
+    /**
+     * The deltas of the threads over a measurement window, including the
+     * threads that started or exited in it.
+     */
+    static final class Window {
+        final long startNanos;
+        private final Map<Long, Tracked> live = new HashMap<>();
+        private final long[][] exited = new long[GROUPS.length][ALIVE_NS + 1];
+
+        Window(long startNanos, Map<Long, long[]> snapshot) {
+            this.startNanos = startNanos;
+            for (Map.Entry<Long, long[]> entry : snapshot.entrySet()) {
+                live.put(entry.getKey(), new Tracked(entry.getValue(), entry.getValue(), startNanos, startNanos));
+            }
+        }
+
+        /**
+         * @param previousNanos the previous poll, threads first seen now started after it
+         */
+        void update(Map<Long, long[]> snapshot, long nowNanos, long previousNanos) {
+            Iterator<Map.Entry<Long, Tracked>> it = live.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Tracked> entry = it.next();
+                if (!snapshot.containsKey(entry.getKey())) {
+                    // exited, it keeps what it did until the last poll that saw it
+                    add(exited, entry.getValue());
+                    it.remove();
+                }
+            }
+            for (Map.Entry<Long, long[]> entry : snapshot.entrySet()) {
+                Tracked t = live.get(entry.getKey());
+                if (t == null) {
+                    // the counters of a new thread count from 0
+                    live.put(entry.getKey(), new Tracked(new long[GROUP + 1], entry.getValue(),
+                            Math.max(startNanos, previousNanos), nowNanos));
+                } else {
+                    t.last = entry.getValue();
+                    t.lastNanos = nowNanos;
+                }
+            }
+        }
+
+        /**
+         * @return per group: the threads, the counter deltas and the alive time
+         */
+        long[][] sums() {
+            long[][] groups = new long[GROUPS.length][];
+            for (int g = 0; g < GROUPS.length; g++) {
+                groups[g] = exited[g].clone();
+            }
+            for (Tracked t : live.values()) {
+                add(groups, t);
+            }
+            return groups;
+        }
+
+        private static void add(long[][] groups, Tracked t) {
+            long[] sum = groups[(int) t.last[GROUP]];
+            sum[THREADS_SEEN]++;
+            for (int i = CPU_NS; i < GROUP; i++) {
+                sum[i + 1] += t.last[i] - t.from[i];
+            }
+            sum[ALIVE_NS] += t.lastNanos - t.startNanos;
+        }
+
+        /**
+         * The next window, starting with the live threads where this one ends.
+         */
+        Window next(long nowNanos) {
+            Map<Long, long[]> snapshot = new HashMap<>();
+            for (Map.Entry<Long, Tracked> entry : live.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().last);
+            }
+            return new Window(nowNanos, snapshot);
+        }
+    }
+
+    /**
+     * Mark the calling thread as a workload thread.
+     */
+    public void register() {
+        workers.add(Thread.currentThread().getId());
+    }
+
+    /**
+     * Take the baseline of the measurement window, only the first call counts.
+     */
+    public synchronized boolean startOnce() {
+        if (started) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Map<Long, long[]> snapshot = snapshot();
+        total = new Window(now, snapshot);
+        interval = new Window(now, snapshot);
+        lastPollNanos = now;
+        started = true;
+        return true;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    private int groupOf(long id, String name) {
+        if (workers.contains(id)) {
+            return 0;
+        }
+        // the netty threads of the Kudu client
+        if (name.startsWith("kudu-nio") || name.startsWith("New I/O")) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private Map<Long, long[]> snapshot() {
+        Map<Long, long[]> snapshot = new HashMap<>();
+        for (ThreadInfo info : THREADS.getThreadInfo(THREADS.getAllThreadIds())) {
+            if (info == null) {
+                continue;
+            }
+            long id = info.getThreadId();
+            long cpu = THREADS.getThreadCpuTime(id);
+            if (cpu == -1 && THREADS.isThreadCpuTimeEnabled()) {
+                // exited since getThreadInfo, the previous poll has its last counters
+                continue;
+            }
+            long[] counters = new long[GROUP + 1];
+            counters[CPU_NS] = Math.max(0, cpu);
+            counters[BLOCKED_COUNT] = info.getBlockedCount();
+            counters[BLOCKED_MS] = Math.max(0, info.getBlockedTime());
+            counters[WAITED_COUNT] = info.getWaitedCount();
+            counters[WAITED_MS] = Math.max(0, info.getWaitedTime());
+            counters[GROUP] = groupOf(id, info.getThreadName());
+            snapshot.put(id, counters);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Refresh the counters of the live threads, so that the threads exiting
+     * before the next sample lose as little as possible.
+     */
+    public synchronized void poll() {
+        if (!started) {
+            return;
+        }
+        long now = System.nanoTime();
+        Map<Long, long[]> snapshot = snapshot();
+        total.update(snapshot, now, lastPollNanos);
+        interval.update(snapshot, now, lastPollNanos);
+        lastPollNanos = now;
+    }
+
+    static String format(String label, long[][] groups) {
+        StringBuilder sb = new StringBuilder();
+        for (int g = 0; g < GROUPS.length; g++) {
+            long[] sum = groups[g];
+            if (sum[THREADS_SEEN] == 0) {
+                continue;
+            }
+            double aliveMs = Math.max(1, sum[ALIVE_NS]) / 1e6;
+            sb.append(String.format("%s %s: threads=%d cpu=%.1f%% blocked=%d (%.1f%%) waited=%d (%.1f%%)",
+                    label, GROUPS[g], sum[THREADS_SEEN],
+                    sum[CPU_NS + 1] / 1e6 * 100 / aliveMs,
+                    sum[BLOCKED_COUNT + 1], sum[BLOCKED_MS + 1] * 100 / aliveMs,
+                    sum[WAITED_COUNT + 1], sum[WAITED_MS + 1] * 100 / aliveMs));
+            if (g == 0) {
+                sb.append(" -> ").append(verdict(sum));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * What the workload threads spend most of their time on.
+     */
+    static String verdict(long[] sum) {
+        double aliveMs = Math.max(1, sum[ALIVE_NS]) / 1e6;
+        double cpu = sum[CPU_NS + 1] / 1e6 / aliveMs;
+        double blocked = sum[BLOCKED_MS + 1] / aliveMs;
+        double waited = sum[WAITED_MS + 1] / aliveMs;
+        if (cpu >= 0.7) {
+            return "cpu-bound";
+        }
+        if (blocked >= 0.2 && blocked >= waited) {
+            return "lock-contended";
+        }
+        if (waited >= 0.2) {
+            return "waiting on the network or queues";
+        }
+        return "mixed";
+    }
+
+    /**
+     * The interval since the previous sample.
+     */
+    public synchronized String sample() {
+        if (!started) {
+            return "";
+        }
+        poll();
+        String report = format("interval", interval.sums());
+        interval = interval.next(lastPollNanos);
+        return report;
+    }
+
+    /**
+     * The whole measurement window.
+     */
+    public synchronized String summary() {
+        if (!started) {
+            return "profile: the measurement window never started";
+        }
+        poll();
+        String contention = THREADS.isThreadContentionMonitoringEnabled() ? "" :
+                "profile: contention monitoring is not supported, blocked and waited times are 0" +
+                        System.lineSeparator();
+        return contention + format("profile", total.sums());
+    }
+}
@@ -0,0 +1,166 @@
+package org.apache.kudu.examples.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Tracks the warmup of a run so that JIT compilation, table location cache
+ * fills and connection negotiation don't pollute the measured numbers.
+ * <p>
+ * The first request of every thread is recorded separately as the cold start.
+ * The warmup lasts at least warmupMs. With steady state detection it then
+ * goes on until the throughput and the mean latency of the last few windows
+ * vary by at most maxCv (standard deviation / mean), or until maxWarmupMs.
+ * The recording methods are thread-safe.
+ */
+public class Warmup {
+    private final long warmupMs;
+    private final boolean detectSteadyState;
+    private final long maxWarmupMs;
+    private final long windowMs;
+    private final double maxCv;
+    private final double[] windowQps;
+    private final double[] windowMeanUs;
+
+    private final Histogram cold = LatencyReport.newHistogram();
+    private final Histogram warm = LatencyReport.newHistogram();
+    private final Recorder window = LatencyReport.newRecorder();
+    private Histogram recycled;
+    private int windows;
+    private long beginMs;
+    private volatile long windowStartMs;
+    private volatile boolean done;
+    private long doneMs;
+    private String reason;
+
+    public Warmup(long warmupMs,
+                  boolean detectSteadyState,
+                  long maxWarmupMs,
+                  long windowMs,
+                  int windowCount,
+                  double maxCv) {
+        if (windowCount < 1) {
+            throw new IllegalArgumentException("At least one steady state window is needed, got " + windowCount);
+        }
+        if (windowMs < 1) {
+            throw new IllegalArgumentException("The steady state window must be at least 1 ms, got " + windowMs);
+        }
+        this.warmupMs = warmupMs;
+        this.detectSteadyState = detectSteadyState;
+        this.maxWarmupMs = Math.max(warmupMs, maxWarmupMs);
+        this.windowMs = windowMs;
+        this.maxCv = maxCv;
+        this.windowQps = new double[windowCount];
+        this.windowMeanUs = new double[windowCount];
+        this.done = warmupMs <= 0 && !detectSteadyState;
+        this.reason = "no warmup";
+    }
+
+    /**
+     * No warmup, only the cold start is tracked.
+     */
+    public static Warmup none() {
+        return new Warmup(0, false, 0, 1000, 1, 0);
+    }
+
+    public void start() {
+        start(System.currentTimeMillis());
+    }
+
+    synchronized void start(long nowMs) {
+        beginMs = nowMs;
+        windowStartMs = beginMs;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * When the warmup ended, relative to {@link #start()}.
+     */
+    public synchronized long getDoneMs() {
+        return doneMs;
+    }
+
+    public synchronized void recordCold(long latencyUs) {
+        cold.recordValue(latencyUs);
+    }
+
+    /**
+     * Record a warmup request, returns true once the warmup is over.
+     */
+    public boolean record(long latencyUs) {
+        return record(latencyUs, System.currentTimeMillis());
+    }
+
+    boolean record(long latencyUs, long now) {
+        if (done) {
+            return true;
+        }
+        window.recordValue(latencyUs);
+        if (now - windowStartMs >= windowMs ||
+                (!detectSteadyState && now - beginMs >= warmupMs)) {
+            roll(now);
+        }
+        return done;
+    }
+
+    private synchronized void roll(long now) {
+        if (done) {
+            return;
+        }
+        long elapsedMs = now - windowStartMs;
+        recycled = window.getIntervalHistogram(recycled);
+        warm.add(recycled);
+        int slot = windows % windowQps.length;
+        windowQps[slot] = LatencyReport.qps(recycled.getTotalCount(), elapsedMs);
+        windowMeanUs[slot] = recycled.getMean();
+        windows++;
+        windowStartMs = now;
+
+        long warmedMs = now - beginMs;
+        if (warmedMs < warmupMs) {
+            return;
+        }
+        if (!detectSteadyState) {
+            finish(warmedMs, "fixed warmup of " + warmupMs + " ms");
+        } else if (windows >= windowQps.length &&
+                cv(windowQps) <= maxCv && cv(windowMeanUs) <= maxCv) {
+            finish(warmedMs, String.format("steady state after %d windows of %d ms: qps cv=%.3f, mean latency cv=%.3f",
+                    windows, windowMs, cv(windowQps), cv(windowMeanUs)));
+        } else if (warmedMs >= maxWarmupMs) {
+            finish(warmedMs, "no steady state within " + maxWarmupMs + " ms, measuring anyway");
+        }
+    }
+
+    private void finish(long warmedMs, String why) {
+        doneMs = warmedMs;
+        reason = why;
+        done = true;
+    }
+
+    static double cv(double[] values) {
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        double mean = sum / values.length;
+        if (mean == 0) {
+            return Double.MAX_VALUE;
+        }
+        double sq = 0;
+        for (double v : values) {
+            sq += (v - mean) * (v - mean);
+        }
+        return Math.sqrt(sq / values.length) / mean;
+    }
+
+    public synchronized String report() {
+        return LatencyReport.summarize("cold start (first request per thread)", cold, 0) +
+                System.lineSeparator() +
+                LatencyReport.summarize("warmup", warm, doneMs) +
+                System.lineSeparator() +
+                "warmup took " + doneMs + " ms: " + reason;
+    }
+}
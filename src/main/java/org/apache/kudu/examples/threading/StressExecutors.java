@@ -3,6 +3,7 @@ package org.apache.kudu.examples.threading;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class StressExecutors {
     private int threads;
@@ -41,4 +42,8 @@ public class StressExecutors {
         service.shutdown();
         return true;
     }
+
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        return service.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    }
 }
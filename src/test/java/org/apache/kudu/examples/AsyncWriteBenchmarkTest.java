@@ -0,0 +1,55 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.kudu.client.KuduScanner;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.test.KuduTestHarness;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class AsyncWriteBenchmarkTest {
+
+    @Rule
+    public KuduTestHarness harness = new KuduTestHarness();
+
+    @Test(timeout = 60000)
+    public void testBufferBoundBelowOneBatch() throws Exception {
+        String tableName = "async_write_test";
+        KuduOperations.createExampleTable(harness.getClient(), tableName);
+        int rows = 500;
+        // room for about two operations while a batch holds 1000 of them
+        new AsyncWriteBenchmark(harness.getAsyncClient(), 1000, 2 * AsyncWriteBenchmark.MAX_OPERATION_BYTES)
+                .run(tableName, rows, new KeyGenerators(KeyGenerators.SEQUENTIAL, rows));
+
+        KuduScanner scanner = harness.getClient().newScannerBuilder(harness.getClient().openTable(tableName)).build();
+        int count = 0;
+        while (scanner.hasMoreRows()) {
+            count += scanner.nextRows().getNumRows();
+        }
+        assertEquals(rows, count);
+    }
+
+    @Test(timeout = 60000)
+    public void testWritesPublishLatestKey() throws Exception {
+        String tableName = "async_write_latest_test";
+        KuduOperations.createExampleTable(harness.getClient(), tableName);
+        KeyGenerators keyGenerators = new KeyGenerators("uniform", 1000);
+        new AsyncWriteBenchmark(harness.getAsyncClient(), 10, AsyncWriteBenchmark.DEFAULT_MAX_BUFFERED_BYTES)
+                .run(tableName, 100, keyGenerators);
+        long latest = keyGenerators.latestKey();
+        assertTrue(latest >= 0 && latest < 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectBoundBelowOneOperation() {
+        new AsyncWriteBenchmark(harness.getAsyncClient(), 1000, AsyncWriteBenchmark.MAX_OPERATION_BYTES - 1);
+    }
+
+    @Test
+    public void testRejectBoundOption() {
+        assertFalse(new ExampleArguments().parseArgs(new String[]{"-k", "m", "--asyncWrite", "--maxBufferedBytes", "8"}));
+    }
+}
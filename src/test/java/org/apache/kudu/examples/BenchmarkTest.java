@@ -0,0 +1,60 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class BenchmarkTest {
+
+    private static ExampleArguments parse(String... args) {
+        ExampleArguments a = new ExampleArguments();
+        assertTrue(a.parseArgs(args));
+        return a;
+    }
+
+    @Test
+    public void testInferLegacyModes() {
+        // the former ScanItemTable command lines
+        assertEquals(Benchmark.LOOKUP, Benchmark.inferMode(parse("-k", "m", "-f", "ids", "-t", "t", "-i", "2"), null));
+        assertEquals(Benchmark.LOOKUP, Benchmark.inferMode(parse("-k", "m", "-t", "t"), Benchmark.LOOKUP));
+        assertEquals("exists", Benchmark.inferMode(parse("-k", "m", "-f", "ids", "--existence"), Benchmark.LOOKUP));
+        assertEquals("incremental", Benchmark.inferMode(parse("-k", "m", "--incremental"), Benchmark.LOOKUP));
+        // the former Example command lines
+        assertEquals(Benchmark.EXAMPLE, Benchmark.inferMode(parse("-k", "m", "-m", "31"), null));
+        assertEquals("stress", Benchmark.inferMode(parse("-k", "m", "-d", "1000"), null));
+        assertEquals("coordinator", Benchmark.inferMode(parse("-k", "m", "-d", "1000", "-w", "2"), null));
+        assertEquals("worker", Benchmark.inferMode(parse("-c", "localhost:7077"), null));
+        assertEquals("layouts", Benchmark.inferMode(parse("-k", "m", "--layouts", "hash:8"), null));
+    }
+
+    @Test
+    public void testTuningMatrix() {
+        ExampleArguments a = parse("-k", "m", "-f", "ids", "--tuning", "--sweepClients", "1,2,4");
+        assertEquals("tuning", Benchmark.inferMode(a, null));
+        List<ClientSettings> matrix = new TuningSweep(a).matrix();
+        // worker counts x timeouts x keep-alives x batch sizes x clients
+        assertEquals(3 * 1 * 1 * 2 * 3, matrix.size());
+        assertEquals(0, matrix.get(0).workerCount);
+        assertEquals(4, matrix.get(matrix.size() - 1).clients);
+        assertEquals(65536, matrix.get(matrix.size() - 1).batchSizeBytes);
+    }
+
+    @Test
+    public void testRejectInvalidOptions() {
+        assertFalse(new ExampleArguments().parseArgs(new String[]{"-k", "m", "--steadyState", "--steadyWindows", "0"}));
+        assertFalse(new ExampleArguments().parseArgs(new String[]{"-k", "m", "--steadyWindowMs", "0"}));
+        assertFalse(new ExampleArguments().parseArgs(new String[]{"-k", "m", "-f", "ids", "--chunkSize", "0"}));
+    }
+
+    @Test
+    public void testUsageListsModes() {
+        String usage = Benchmark.usage();
+        for (String mode : new String[]{"lookup", "ingest", "scan", "stress", "soak"}) {
+            assertTrue(mode, usage.contains("  " + mode + " "));
+        }
+    }
+}
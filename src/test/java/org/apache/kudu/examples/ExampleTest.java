@@ -17,9 +17,12 @@
 
 package org.apache.kudu.examples;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.kudu.client.KuduException;
+import org.apache.kudu.examples.keys.KeyGenerator;
+import org.apache.kudu.examples.keys.KeyGenerators;
 import org.apache.kudu.test.KuduTestHarness;
 import org.junit.Rule;
 import org.junit.Test;
@@ -46,4 +49,30 @@ public class ExampleTest {
         KuduOperations.createExampleTable(harness.getClient(), tableName);
         assertTrue(harness.getClient().tableExists(tableName));
     }
+
+    @Test
+    public void testLatestFollowsInserts() throws Exception {
+        String tableName = "test_latest_follows_inserts";
+        KuduOperations.createExampleTable(harness.getClient(), tableName);
+        KeyGenerators keyGenerators = new KeyGenerators("latest", 1000);
+        assertEquals(-1, keyGenerators.latestKey());
+        // the insert step and the latest reader share the key generators as in kuduTableTest
+        KuduOperations.insertRows(harness.getClient(), tableName, 200, keyGenerators);
+        long latest = keyGenerators.latestKey();
+        assertTrue(latest >= 0);
+        KeyGenerator reader = keyGenerators.forThread(0, 1);
+        int recent = 0;
+        for (int i = 0; i < 10000; i++) {
+            long key = reader.nextKey();
+            if (key > latest - 10 && key <= latest) {
+                recent++;
+            }
+        }
+        assertTrue(recent > 10000 / 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectKeyOutOfIntRange() {
+        KuduOperations.toIntKey(1L << 31);
+    }
 }
@@ -0,0 +1,96 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
+import org.apache.kudu.Type;
+import org.apache.kudu.client.CreateTableOptions;
+import org.apache.kudu.client.Insert;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduSession;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.examples.keys.KeyGenerators;
+import org.apache.kudu.test.KuduTestHarness;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ExistenceCheckTest {
+    private static final int PRESENT = 1000;
+    private static final int CHECKS = 4 * PRESENT;
+    private static final double FP_RATE = 0.01;
+
+    @Rule
+    public KuduTestHarness harness = new KuduTestHarness();
+
+    /**
+     * A table of the even ids below 2 * PRESENT, so that checking the ids
+     * below CHECKS finds PRESENT of them and misses the other 3 * PRESENT.
+     */
+    private ExistenceCheck createItems(String tableName) throws Exception {
+        KuduClient client = harness.getClient();
+        List<ColumnSchema> columns = new ArrayList<>(1);
+        columns.add(new ColumnSchema.ColumnSchemaBuilder(ExistenceCheck.KEY_COLUMN, Type.INT64)
+                .key(true)
+                .build());
+        CreateTableOptions cto = new CreateTableOptions();
+        cto.addHashPartitions(Collections.singletonList(ExistenceCheck.KEY_COLUMN), 4);
+        client.createTable(tableName, new Schema(columns), cto);
+        KuduTable table = client.openTable(tableName);
+        KuduSession session = client.newSession();
+        for (int i = 0; i < PRESENT; i++) {
+            Insert insert = table.newInsert();
+            insert.getRow().addLong(ExistenceCheck.KEY_COLUMN, 2L * i);
+            session.apply(insert);
+        }
+        session.close();
+        return new ExistenceCheck(client, table);
+    }
+
+    private static ExistenceCheck.Result checkAll(ExistenceCheck check) throws Exception {
+        return check.check(new KeyGenerators(KeyGenerators.SEQUENTIAL, CHECKS).forThread(0, 1), CHECKS);
+    }
+
+    @Test
+    public void testFilterBytes() {
+        // 1000 * ln(100) / ln(2)^2 = 9585.06 bits
+        assertEquals(1199, ExistenceCheck.filterBytes(1000, 0.01));
+        assertTrue(ExistenceCheck.filterBytes(1000, 0.001) > ExistenceCheck.filterBytes(1000, 0.01));
+        assertEquals(2 * ExistenceCheck.filterBytes(1000, 0.01), ExistenceCheck.filterBytes(2000, 0.01), 1);
+    }
+
+    @Test(timeout = 60000)
+    public void testWithoutFilter() throws Exception {
+        ExistenceCheck check = createItems("existence_test");
+        ExistenceCheck.Result result = checkAll(check);
+        assertEquals(PRESENT, result.hits.getTotalCount());
+        assertEquals(CHECKS - PRESENT, result.misses.getTotalCount());
+        assertEquals(0, result.filtered.getTotalCount());
+        assertEquals(0, result.falsePositives);
+    }
+
+    @Test(timeout = 60000)
+    public void testBloomFilter() throws Exception {
+        ExistenceCheck check = createItems("existence_bloom_test");
+        // counts the keys with a scan first
+        check.buildBloomFilter(FP_RATE, 2, 0);
+        assertEquals(PRESENT, check.getBloomExpectedKeys());
+        assertEquals(PRESENT, check.getBloomKeys());
+        assertEquals(ExistenceCheck.filterBytes(PRESENT, FP_RATE), check.getBloomBytes());
+
+        ExistenceCheck.Result result = checkAll(check);
+        // no false negatives: every present id gets to Kudu and is found
+        assertEquals(PRESENT, result.hits.getTotalCount());
+        assertEquals(CHECKS - PRESENT, result.negatives());
+        assertEquals(CHECKS, result.total());
+        // every absent id the filter let through is a false positive, the rest are RPCs saved
+        assertEquals(result.misses.getTotalCount(), result.falsePositives);
+        assertTrue("false positive rate " + result.falsePositiveRate(), result.falsePositiveRate() < 5 * FP_RATE);
+        assertTrue(result.filtered.getTotalCount() > (CHECKS - PRESENT) * (1 - 5 * FP_RATE));
+    }
+}
@@ -0,0 +1,37 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalScanTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCheckpointRoundTrip() throws Exception {
+        File file = new File(folder.getRoot(), "scan.checkpoint");
+        String checkpoint = file.getPath();
+        // no checkpoint yet, the first run only records one
+        assertEquals(-1, IncrementalScan.readCheckpoint(checkpoint));
+        Files.write(file.toPath(), " \n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(-1, IncrementalScan.readCheckpoint(checkpoint));
+
+        long timestamp = 6789012345678901234L;
+        IncrementalScan.writeCheckpoint(checkpoint, timestamp);
+        assertEquals(timestamp, IncrementalScan.readCheckpoint(checkpoint));
+        IncrementalScan.writeCheckpoint(checkpoint, timestamp + 1);
+        assertEquals(timestamp + 1, IncrementalScan.readCheckpoint(checkpoint));
+        // the temporary file is moved over the checkpoint
+        assertFalse(new File(folder.getRoot(), "scan.checkpoint.tmp").exists());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+}
@@ -0,0 +1,48 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.test.KuduTestHarness;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PartitionLayoutSuiteTest {
+
+    @Rule
+    public KuduTestHarness harness = new KuduTestHarness();
+
+    @Test
+    public void testCompareLayouts() throws Exception {
+        KuduClient client = harness.getClient();
+        int rows = 300;
+        PartitionLayoutSuite suite = new PartitionLayoutSuite(client, rows, 9, 50, 10, "uniform");
+        List<PartitionLayoutSuite.Result> results = suite.runAll(PartitionLayoutSuite.DEFAULT_LAYOUTS, "layout_test");
+
+        assertEquals(4, results.size());
+        assertEquals(8, results.get(0).tablets);
+        assertEquals(32, results.get(1).tablets);
+        assertEquals(32, results.get(2).tablets);
+        assertEquals(32, results.get(3).tablets);
+        long scannedRows = results.get(0).scannedRows;
+        for (PartitionLayoutSuite.Result result : results) {
+            // identical data and workloads give identical answers on every layout
+            assertEquals(rows, result.rows);
+            assertEquals(50, result.lookup.getTotalCount());
+            assertEquals(50, result.found);
+            assertEquals(10, result.scan.getTotalCount());
+            assertEquals(scannedRows, result.scannedRows);
+            assertTrue(result.scannedRows > 0);
+            assertFalse(client.tableExists("layout_test_" + result.layout.replaceAll("[^a-zA-Z0-9]", "_")));
+        }
+        String[] lines = PartitionLayoutSuite.format(results).split(System.lineSeparator());
+        assertEquals(1 + results.size(), lines.length);
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(lines[i + 1].startsWith(results.get(i).layout + " "));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ProjectionSweepTest {
+
+    @Test
+    public void testUtf8Length() {
+        // ASCII, 2, 3 and 4 byte (surrogate pair) characters, and unpaired surrogates
+        for (String value : new String[]{"", "price", "\u00E9t\u00E9", "\u4EF7\u683C", "a\uD83D\uDE00b",
+                "\uD83D\uDE00\uD83D\uDE00", "unpaired \uD800 and \uDC00", "end\uD83D"}) {
+            assertEquals(value, value.getBytes(StandardCharsets.UTF_8).length, ProjectionSweep.utf8Length(value));
+        }
+    }
+
+    @Test
+    public void testParseWidths() {
+        assertEquals(Arrays.asList(1, 5, 20, 30), ProjectionSweep.parseWidths(ProjectionSweep.DEFAULT_WIDTHS, 30));
+        // capped at the columns of the kind and deduplicated
+        assertEquals(Arrays.asList(1, 3), ProjectionSweep.parseWidths("1, 5 ,20,ALL", 3));
+        assertEquals(Arrays.asList(2), ProjectionSweep.parseWidths("all", 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectNonNumericWidth() {
+        ProjectionSweep.parseWidths("1,five", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectEmptyWidth() {
+        ProjectionSweep.parseWidths("1,,5", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectWidthBelowOne() {
+        ProjectionSweep.parseWidths("0,5", 10);
+    }
+
+    @Test
+    public void testRejectWidthsOption() {
+        assertFalse(new ExampleArguments().parseArgs(new String[]{"-k", "m", "--projectionSweep", "--widths", "-1"}));
+    }
+}
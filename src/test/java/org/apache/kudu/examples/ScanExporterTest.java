@@ -0,0 +1,140 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.kudu.client.Insert;
+import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduSession;
+import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.test.KuduTestHarness;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ScanExporterTest {
+
+    @Rule
+    public KuduTestHarness harness = new KuduTestHarness();
+
+    private static String value(int key) {
+        // null every 10 rows, multi-byte and surrogate pair characters otherwise
+        return key % 10 == 0 ? null : "\u4EF7\u683C-\uD83D\uDE00-" + key;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode one exported file into key -> value, checking the header and the block layout.
+     */
+    private static void decode(Path file, Map<Integer, String> rows) throws Exception {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(ScanExporter.MAGIC, in.getInt());
+        assertEquals(ScanExporter.VERSION, in.getInt());
+        assertEquals(2, in.getInt());
+        assertEquals("key", readString(in));
+        assertEquals("int32", readString(in));
+        assertEquals(0, in.get());
+        assertEquals("value", readString(in));
+        assertEquals("string", readString(in));
+        assertEquals(1, in.get());
+        while (in.hasRemaining()) {
+            int count = in.getInt();
+            int keyNulls = in.getInt();
+            int keyBytes = in.getInt();
+            int valueNulls = in.getInt();
+            int valueBytes = in.getInt();
+            // no null flags for the key, one per row for the value
+            assertEquals(0, keyNulls);
+            assertEquals(4 * count, keyBytes);
+            assertEquals(count, valueNulls);
+            int[] keys = new int[count];
+            for (int r = 0; r < count; r++) {
+                keys[r] = in.getInt();
+            }
+            byte[] nulls = new byte[count];
+            in.get(nulls);
+            int end = in.position() + valueBytes;
+            for (int r = 0; r < count; r++) {
+                String value = readString(in);
+                rows.put(keys[r], nulls[r] == 1 ? null : value);
+                if (nulls[r] == 1) {
+                    assertEquals("", value);
+                }
+            }
+            assertEquals(end, in.position());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testExportRoundTrip() throws Exception {
+        String tableName = "export_test";
+        KuduClient client = harness.getClient();
+        KuduOperations.createExampleTable(client, tableName);
+        KuduTable table = client.openTable(tableName);
+        KuduSession session = client.newSession();
+        int count = 100;
+        for (int key = 0; key < count; key++) {
+            Insert insert = table.newInsert();
+            PartialRow row = insert.getRow();
+            row.addInt("key", key);
+            if (value(key) == null) {
+                row.setNull("value");
+            } else {
+                row.addString("value", value(key));
+            }
+            session.apply(insert);
+        }
+        session.close();
+
+        Path dir = Files.createTempDirectory("export_test");
+        // more threads than the 8 tablets, and blocks of a few rows
+        ScanExporter exporter = new ScanExporter(client, table, 16, 200000);
+        ScanExporter.Stats stats = exporter.export(dir.toString());
+        assertEquals(count, stats.rows);
+        assertEquals(8, exporter.writerCount);
+
+        Map<Integer, String> rows = new HashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                decode(file, rows);
+            }
+        }
+        assertEquals(count, rows.size());
+        for (int key = 0; key < count; key++) {
+            if (value(key) == null) {
+                assertNull(rows.get(key));
+            } else {
+                assertEquals(value(key), rows.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testPutUtf8() {
+        for (String value : new String[]{"", "price", "\u00E9t\u00E9", "\u4EF7\u683C", "a\uD83D\uDE00b",
+                "unpaired \uD800 and \uDC00", "end\uD83D"}) {
+            ByteBuffer out = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+            ScanExporter.putUtf8(out, value);
+            out.flip();
+            byte[] bytes = new byte[out.getInt()];
+            out.get(bytes);
+            assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), bytes);
+            assertEquals(0, out.remaining());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.apache.kudu.examples;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class ShardedLookupTest {
+
+    @Test
+    public void testContiguousShards() {
+        ShardedLookup.Shard[] shards = ShardedLookup.split(10, 3, 2);
+        assertEquals(0, shards[0].start);
+        assertEquals(4, shards[0].len);
+        assertEquals(4, shards[1].start);
+        assertEquals(3, shards[1].len);
+        assertEquals(7, shards[2].start);
+        assertEquals(3, shards[2].len);
+        assertEquals(8, shards[0].work);
+        // the second iteration goes over the shard again
+        assertEquals(5, shards[1].index(4));
+    }
+
+    @Test
+    public void testStealFromSlowerThreads() {
+        ShardedLookup.Shard[] shards = ShardedLookup.split(103, 4, 1);
+        AtomicIntegerArray visits = new AtomicIntegerArray(103);
+        // the first thread is done before the others start, so it takes over their shards
+        long stolen = ShardedLookup.drain(shards, 0, 5, (shard, p) -> visits.incrementAndGet(shard.index(p)));
+        assertEquals(103 - shards[0].len, stolen);
+        for (int t = 1; t < 4; t++) {
+            assertEquals(0, ShardedLookup.drain(shards, t, 5, (shard, p) -> visits.incrementAndGet(shard.index(p))));
+        }
+        for (int i = 0; i < 103; i++) {
+            assertEquals(1, visits.get(i));
+        }
+    }
+
+    private static void assertEveryIdOnce(int items, int threads, int iterations, int chunk) throws Exception {
+        ShardedLookup.Shard[] shards = ShardedLookup.split(items, threads, iterations);
+        AtomicIntegerArray visits = new AtomicIntegerArray(items);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(pool.submit(() -> ShardedLookup.drain(shards, thread, chunk, (shard, p) -> {
+                    visits.incrementAndGet(shard.index(p));
+                    // the first shard is slow, so the other threads steal from it
+                    if (shard == shards[0]) {
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                })));
+            }
+            long stolen = 0;
+            for (Future<Long> f : futures) {
+                stolen += f.get();
+            }
+            // a chunk of a whole shard leaves nothing to steal
+            if (threads > 1 && (long) chunk * 2 <= (long) items / threads * iterations) {
+                assertTrue("chunk " + chunk, stolen > 0);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        for (int i = 0; i < items; i++) {
+            assertEquals("id " + i + " with chunk " + chunk, iterations, visits.get(i));
+        }
+    }
+
+    @Test
+    public void testEveryIdOnceWithChunkSizes() throws Exception {
+        for (int chunk : new int[]{1, 7, ShardedLookup.DEFAULT_CHUNK, 1000}) {
+            assertEveryIdOnce(203, 4, 1, chunk);
+            assertEveryIdOnce(203, 4, 3, chunk);
+        }
+        assertEveryIdOnce(3, 4, 2, 1);
+        assertEveryIdOnce(50, 1, 1, 7);
+    }
+}
@@ -0,0 +1,110 @@
+package org.apache.kudu.examples.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.apache.kudu.examples.ExampleArguments;
+import org.junit.Test;
+
+/**
+ * Runs a coordinator and several worker processes over loopback with a
+ * workload that doesn't need a Kudu cluster.
+ */
+public class CoordinatorTest {
+    private static final int VALUES_PER_WORKER = 1000;
+
+    /**
+     * A worker process recording base + 0..9 us, args: the coordinator port and the base.
+     */
+    public static void main(String[] args) throws Exception {
+        final long base = Long.parseLong(args[1]);
+        String result = new Worker("localhost", Integer.parseInt(args[0])).run((spec, recorder) -> {
+            if (spec.workers != 0) {
+                return "the spec asks for workers";
+            }
+            for (int i = 0; i < VALUES_PER_WORKER; i++) {
+                recorder.recordValue(base + i % 10);
+                if (i % 100 == 0) {
+                    Thread.sleep(10);
+                }
+            }
+            return "ok";
+        });
+        System.exit("ok".equals(result) ? 0 : 1);
+    }
+
+    @Test
+    public void testMergeWorkerHistograms() throws Exception {
+        final int workers = 3;
+        String[] args = {"-k", "localhost:7051", "-d", "500",
+                "-w", String.valueOf(workers), "--coordinatorPort", "0",
+                "--startDelayMs", "100", "--reportIntervalMs", "50"};
+        ExampleArguments eArgParser = new ExampleArguments();
+        eArgParser.parseArgs(args);
+        Coordinator coordinator = new Coordinator(eArgParser, args);
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        List<Process> processes = new ArrayList<>();
+        try {
+            Future<Histogram> merged = pool.submit(coordinator::run);
+            for (int w = 0; w < workers; w++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        CoordinatorTest.class.getName(), String.valueOf(coordinator.getPort()),
+                        String.valueOf((w + 1) * 1000))
+                        .inheritIO()
+                        .start());
+            }
+            for (Process process : processes) {
+                assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+                assertEquals(0, process.exitValue());
+            }
+            Histogram total = merged.get(60, TimeUnit.SECONDS);
+            assertEquals(workers * VALUES_PER_WORKER, total.getTotalCount());
+            assertEquals(1000, total.getMinValue());
+            assertEquals(3009, total.getMaxValue(), 3);
+        } finally {
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWorkloadFollowsSpecMode() {
+        ExampleArguments spec = new ExampleArguments();
+        spec.parseArgs(new String[]{"-k", "m", "-d", "500", "-w", "3"});
+        assertEquals("stress", Worker.modeOf(spec));
+        assertEquals(3, spec.workers);
+
+        spec = new ExampleArguments();
+        spec.parseArgs(new String[]{"-k", "m", "-d", "500", "-w", "3", "--mode", "stress"});
+        assertEquals(Worker.STRESS, Worker.workloadOf(spec));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectSoakOnWorkers() {
+        ExampleArguments spec = new ExampleArguments();
+        spec.parseArgs(new String[]{"-k", "m", "-d", "500", "-w", "3", "--mode", "soak"});
+        assertEquals("soak", Worker.modeOf(spec));
+        Worker.workloadOf(spec);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectModeWorkersDontRun() {
+        ExampleArguments spec = new ExampleArguments();
+        spec.parseArgs(new String[]{"-k", "m", "-f", "ids", "-w", "3"});
+        assertEquals("lookup", Worker.modeOf(spec));
+        Worker.workloadOf(spec);
+    }
+}
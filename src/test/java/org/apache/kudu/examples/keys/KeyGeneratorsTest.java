@@ -0,0 +1,125 @@
+package org.apache.kudu.examples.keys;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import org.junit.Test;
+
+public class KeyGeneratorsTest {
+    private static final int COUNT = 1000;
+    private static final int DRAWS = 100000;
+
+    private static int[] histogram(String spec) throws Exception {
+        KeyGenerator keys = new KeyGenerators(spec, COUNT).forThread(0, 1);
+        int[] hits = new int[COUNT];
+        for (int i = 0; i < DRAWS; i++) {
+            long key = keys.nextKey();
+            assertTrue(spec + " key out of range: " + key, key >= 0 && key < COUNT);
+            hits[(int) key]++;
+        }
+        return hits;
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        KeyGenerators generators = new KeyGenerators("sequential", new long[]{7, 8, 9});
+        KeyGenerator first = generators.forThread(0, 2);
+        KeyGenerator second = generators.forThread(1, 2);
+        assertEquals(7, first.nextKey());
+        assertEquals(8, second.nextKey());
+        assertEquals(9, first.nextKey());
+        assertEquals(7, second.nextKey());
+    }
+
+    @Test
+    public void testZipfianIsSkewed() throws Exception {
+        int[] hits = histogram("zipfian");
+        assertTrue(hits[0] > hits[1] && hits[1] > hits[10] && hits[10] > hits[COUNT - 1]);
+        int[] scrambled = histogram("scrambled:0.9");
+        int max = 0;
+        for (int hit : scrambled) {
+            max = Math.max(max, hit);
+        }
+        // the hottest key is still as hot, but no longer key 0
+        assertTrue(max > DRAWS / 20);
+        assertTrue(scrambled[0] < max);
+    }
+
+    @Test
+    public void testZetaComputedOnce() throws Exception {
+        // a theta no other test uses
+        String theta = "0.75";
+        new KeyGenerators("zipfian:" + theta, COUNT).forThread(1, 2);
+        int cached = KeyGenerators.ZETAS.size();
+        // the stress loop builds new generators every cycle
+        for (int cycle = 0; cycle < 3; cycle++) {
+            new KeyGenerators("scrambled:" + theta, COUNT).forThread(0, 2);
+            new KeyGenerators("latest:" + theta, COUNT).forThread(1, 2);
+        }
+        assertEquals(cached, KeyGenerators.ZETAS.size());
+        assertEquals(ZipfianKeyGenerator.zeta(COUNT, 0.75), KeyGenerators.zetan(COUNT, 0.75), 0);
+        new KeyGenerators("zipfian:" + theta, 2 * COUNT);
+        assertEquals(cached + 1, KeyGenerators.ZETAS.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectTheta() throws Exception {
+        new KeyGenerators("zipfian:1.5", COUNT);
+    }
+
+    @Test
+    public void testHotspot() throws Exception {
+        int[] hits = histogram("hotspot:0.1:0.9");
+        int hot = 0;
+        for (int i = 0; i < COUNT / 10; i++) {
+            hot += hits[i];
+        }
+        assertEquals(0.9, hot / (double) DRAWS, 0.02);
+    }
+
+    private static int recentDraws(KeyGenerator reader, long latest) {
+        int recent = 0;
+        for (int i = 0; i < DRAWS; i++) {
+            long key = reader.nextKey();
+            if (key > latest - 10 && key <= latest) {
+                recent++;
+            }
+        }
+        return recent;
+    }
+
+    @Test
+    public void testLatest() throws Exception {
+        KeyGenerators generators = new KeyGenerators("latest", COUNT);
+        KeyGenerator reader = generators.forThread(0, 1);
+        // nothing written yet, the end of the key space is the latest
+        assertTrue(recentDraws(reader, COUNT - 1) > DRAWS / 3);
+        generators.publish(499);
+        // the 10 latest keys take about 39% of the draws with theta 0.99
+        assertTrue(recentDraws(reader, 499) > DRAWS / 3);
+        generators.publish(COUNT);
+        assertTrue(recentDraws(reader, 499) > DRAWS / 3);
+    }
+
+    @Test
+    public void testTraceReplayKeepsTiming() throws Exception {
+        File trace = File.createTempFile("trace", ".csv");
+        trace.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(trace)) {
+            writer.println("1000,11");
+            writer.println("1050,12");
+            writer.println("1100,13");
+        }
+        KeyGenerator keys = new KeyGenerators("trace:" + trace.getPath(), COUNT).forThread(0, 1);
+        long start = System.nanoTime();
+        assertEquals(11, keys.nextKey());
+        assertEquals(12, keys.nextKey());
+        assertEquals(13, keys.nextKey());
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        assertTrue("replay took " + elapsedMs + " ms", elapsedMs >= 95);
+        assertEquals(11, keys.nextKey());
+    }
+}
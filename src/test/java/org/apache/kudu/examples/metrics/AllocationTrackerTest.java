@@ -0,0 +1,46 @@
+package org.apache.kudu.examples.metrics;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+public class AllocationTrackerTest {
+    private static final int BYTES = 16 * 1024 * 1024;
+    private static volatile byte[] sink;
+
+    @Test
+    public void testKeepExitedThreads() throws Exception {
+        assumeTrue(AllocationTracker.isSupported());
+        AllocationTracker tracker = AllocationTracker.start();
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < BYTES / 1024; i++) {
+                sink = new byte[1024];
+            }
+            try {
+                // long enough for a poll to see the thread
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        t.start();
+        t.join();
+        tracker.stop();
+        assertTrue(String.valueOf(tracker.getAllBytes()), tracker.getAllBytes() >= BYTES);
+        assertTrue(tracker.report(1).contains("ms pause time"));
+    }
+
+    @Test
+    public void testLeaveOutConcurrentCycles() {
+        assertTrue(AllocationTracker.isPauseCollector("G1 Young Generation"));
+        assertTrue(AllocationTracker.isPauseCollector("G1 Old Generation"));
+        assertTrue(AllocationTracker.isPauseCollector("ZGC Pauses"));
+        assertTrue(AllocationTracker.isPauseCollector("PS Scavenge"));
+        assertFalse(AllocationTracker.isPauseCollector("ZGC Cycles"));
+        assertFalse(AllocationTracker.isPauseCollector("Shenandoah Cycles"));
+        assertFalse(AllocationTracker.isPauseCollector("G1 Concurrent GC"));
+        assertFalse(AllocationTracker.isPauseCollector("ConcurrentMarkSweep"));
+    }
+}
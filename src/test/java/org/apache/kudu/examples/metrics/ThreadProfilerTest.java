@@ -0,0 +1,94 @@
+package org.apache.kudu.examples.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ThreadProfilerTest {
+    private static final long MS = 1000000L;
+
+    private static long[] counters(long cpuMs, long blockedMs, long waitedMs, int group) {
+        long[] c = new long[ThreadProfiler.GROUP + 1];
+        c[ThreadProfiler.CPU_NS] = cpuMs * MS;
+        c[ThreadProfiler.BLOCKED_MS] = blockedMs;
+        c[ThreadProfiler.WAITED_MS] = waitedMs;
+        c[ThreadProfiler.GROUP] = group;
+        return c;
+    }
+
+    private static long[] sum(long cpuMs, long blockedMs, long waitedMs, long aliveMs) {
+        long[] s = new long[ThreadProfiler.ALIVE_NS + 1];
+        s[ThreadProfiler.THREADS_SEEN] = 1;
+        s[ThreadProfiler.CPU_NS + 1] = cpuMs * MS;
+        s[ThreadProfiler.BLOCKED_MS + 1] = blockedMs;
+        s[ThreadProfiler.WAITED_MS + 1] = waitedMs;
+        s[ThreadProfiler.ALIVE_NS] = aliveMs * MS;
+        return s;
+    }
+
+    @Test
+    public void testVerdict() {
+        assertEquals("cpu-bound", ThreadProfiler.verdict(sum(800, 0, 100, 1000)));
+        assertEquals("lock-contended", ThreadProfiler.verdict(sum(100, 500, 300, 1000)));
+        assertEquals("waiting on the network or queues", ThreadProfiler.verdict(sum(100, 50, 800, 1000)));
+        assertEquals("mixed", ThreadProfiler.verdict(sum(300, 100, 100, 1000)));
+    }
+
+    @Test
+    public void testExitedThreadsKeepTheirCounters() {
+        Map<Long, long[]> start = new HashMap<>();
+        start.put(1L, counters(0, 0, 0, 0));
+        start.put(2L, counters(50, 0, 0, 1));
+        ThreadProfiler.Window window = new ThreadProfiler.Window(0, start);
+
+        // thread 3 appears, thread 2 still runs
+        Map<Long, long[]> first = new HashMap<>();
+        first.put(1L, counters(90, 0, 0, 0));
+        first.put(2L, counters(80, 0, 0, 1));
+        first.put(3L, counters(20, 0, 0, 1));
+        window.update(first, 100 * MS, 0);
+
+        // thread 2 exited
+        Map<Long, long[]> second = new HashMap<>();
+        second.put(1L, counters(180, 0, 0, 0));
+        second.put(3L, counters(60, 0, 10, 1));
+        window.update(second, 200 * MS, 100 * MS);
+
+        long[][] sums = window.sums();
+        long[] workers = sums[0];
+        assertEquals(1, workers[ThreadProfiler.THREADS_SEEN]);
+        assertEquals(180 * MS, workers[ThreadProfiler.CPU_NS + 1]);
+        assertEquals(200 * MS, workers[ThreadProfiler.ALIVE_NS]);
+        assertEquals("cpu-bound", ThreadProfiler.verdict(workers));
+
+        long[] io = sums[1];
+        assertEquals(2, io[ThreadProfiler.THREADS_SEEN]);
+        // 30 ms of the exited thread until its last poll, 60 ms of the new one
+        assertEquals(90 * MS, io[ThreadProfiler.CPU_NS + 1]);
+        assertEquals(10, io[ThreadProfiler.WAITED_MS + 1]);
+        // the exited thread until its last poll, the new one since the poll before it was seen
+        assertEquals(300 * MS, io[ThreadProfiler.ALIVE_NS]);
+        assertTrue(ThreadProfiler.format("profile", sums).contains("client I/O: threads=2 cpu=30.0%"));
+    }
+
+    @Test
+    public void testNextWindowStartsAtTheLastCounters() {
+        Map<Long, long[]> start = new HashMap<>();
+        start.put(1L, counters(10, 0, 0, 0));
+        ThreadProfiler.Window window = new ThreadProfiler.Window(0, start);
+        Map<Long, long[]> later = new HashMap<>();
+        later.put(1L, counters(60, 0, 0, 0));
+        window.update(later, 100 * MS, 0);
+
+        ThreadProfiler.Window next = window.next(100 * MS);
+        Map<Long, long[]> end = new HashMap<>();
+        end.put(1L, counters(70, 0, 0, 0));
+        next.update(end, 200 * MS, 100 * MS);
+        assertEquals(10 * MS, next.sums()[0][ThreadProfiler.CPU_NS + 1]);
+        assertEquals(100 * MS, next.sums()[0][ThreadProfiler.ALIVE_NS]);
+    }
+}
@@ -0,0 +1,94 @@
+package org.apache.kudu.examples.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class WarmupTest {
+    private static final long WINDOW_MS = 100;
+
+    /**
+     * Record one window of requests at the same latency, spread over the
+     * window so that only the last one rolls it.
+     * @return the end of the window
+     */
+    private static long window(Warmup warmup, long startMs, int requests, long latencyUs) {
+        for (int i = 1; i <= requests; i++) {
+            warmup.record(latencyUs, startMs + i * WINDOW_MS / requests);
+        }
+        return startMs + WINDOW_MS;
+    }
+
+    @Test
+    public void testSteadyStateAfterNoise() {
+        Warmup warmup = new Warmup(0, true, 10000, WINDOW_MS, 3, 0.1);
+        warmup.start(0);
+        long now = 0;
+        int[] noisy = {10, 50, 5, 40, 20};
+        for (int i = 0; i < noisy.length; i++) {
+            now = window(warmup, now, noisy[i], 1000 + 3000 * ((i + 1) % 2));
+            assertFalse("window " + i, warmup.isDone());
+        }
+        // the last noisy windows count towards the next three, two stable ones are not enough
+        now = window(warmup, now, 20, 1000);
+        assertFalse(warmup.isDone());
+        now = window(warmup, now, 20, 1000);
+        assertFalse(warmup.isDone());
+        now = window(warmup, now, 20, 1000);
+        assertTrue(warmup.isDone());
+        assertEquals(now, warmup.getDoneMs());
+        assertTrue(warmup.report(), warmup.report().contains("steady state after 8 windows"));
+        // once done the requests are not recorded anymore
+        assertTrue(warmup.record(1000000, now + 1));
+        assertTrue(warmup.report(), warmup.report().contains("warmup: count=" + (10 + 50 + 5 + 40 + 20 * 4)));
+    }
+
+    @Test
+    public void testNeverSteady() {
+        Warmup warmup = new Warmup(0, true, 1000, WINDOW_MS, 3, 0.1);
+        warmup.start(0);
+        long now = 0;
+        int windows = 0;
+        while (!warmup.isDone()) {
+            now = window(warmup, now, windows % 2 == 0 ? 10 : 40, 1000);
+            windows++;
+        }
+        assertEquals(1000 / WINDOW_MS, windows);
+        assertEquals(1000, warmup.getDoneMs());
+        assertTrue(warmup.report(), warmup.report().contains("no steady state within 1000 ms"));
+    }
+
+    @Test
+    public void testMinimumWarmupComesFirst() {
+        // steady from the start, but the warmup lasts at least 500 ms
+        Warmup warmup = new Warmup(500, true, 10000, WINDOW_MS, 2, 0.1);
+        warmup.start(0);
+        long now = 0;
+        while (!warmup.isDone()) {
+            now = window(warmup, now, 20, 1000);
+        }
+        assertEquals(500, warmup.getDoneMs());
+    }
+
+    @Test
+    public void testColdStartKeptApart() {
+        Warmup warmup = new Warmup(0, true, 10000, WINDOW_MS, 1, 0.1);
+        warmup.start(0);
+        warmup.recordCold(50000);
+        warmup.recordCold(60000);
+        window(warmup, 0, 10, 1000);
+        assertTrue(warmup.isDone());
+        String report = warmup.report();
+        assertTrue(report, report.contains("cold start (first request per thread): count=2"));
+        assertTrue(report, report.contains("warmup: count=10"));
+    }
+
+    @Test
+    public void testCv() {
+        assertEquals(0, Warmup.cv(new double[]{5, 5, 5}), 1e-9);
+        assertEquals(0.5, Warmup.cv(new double[]{1, 3}), 1e-9);
+        assertEquals(Double.MAX_VALUE, Warmup.cv(new double[]{0, 0}), 0);
+    }
+}